@@ -0,0 +1,38 @@
+package com.solutionwerk.qb.benchmark;
+
+import com.solutionwerk.qb.Application;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The application context shared by the benchmarks of one JMH fork. The
+ * application runs against the embedded HSQLDB profile on a random port, with
+ * application logging reduced so that it does not distort measurements.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(Application.class).run(
+                "--spring.profiles.active=hsqldb",
+                "--server.port=0",
+                "--logging.level.com.solutionwerk=WARN");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
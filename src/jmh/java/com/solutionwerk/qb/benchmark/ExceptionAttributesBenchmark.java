@@ -0,0 +1,52 @@
+package com.solutionwerk.qb.benchmark;
+
+import com.solutionwerk.qb.web.DefaultExceptionAttributes;
+import com.solutionwerk.qb.web.ExceptionAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.persistence.NoResultException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the error response built by the controller exception
+ * handlers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionAttributesBenchmark {
+
+    private static final ExceptionAttributes EXCEPTION_ATTRIBUTES = new DefaultExceptionAttributes();
+
+    @State(Scope.Thread)
+    public static class Request {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/profiles/999");
+
+        NoResultException exception = new NoResultException("Requested entity not found.");
+    }
+
+    @Benchmark
+    public Map<String, Object> notFound(Request request) {
+        ExceptionAttributes exceptionAttributes = new DefaultExceptionAttributes();
+        return exceptionAttributes.getExceptionAttributes(request.exception, request.request, HttpStatus.NOT_FOUND);
+    }
+
+    @Benchmark
+    public byte[] notFoundJson(Request request) {
+        return EXCEPTION_ATTRIBUTES.getExceptionAttributesJson(request.exception, request.request, HttpStatus.NOT_FOUND);
+    }
+}
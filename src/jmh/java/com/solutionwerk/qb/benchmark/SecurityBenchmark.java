@@ -0,0 +1,64 @@
+package com.solutionwerk.qb.benchmark;
+
+import com.solutionwerk.qb.security.AccountAuthenticationProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of password verification, alone and as part of a complete
+ * authentication by the AccountAuthenticationProvider.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityBenchmark {
+
+    private static final String USERNAME = "qbAdmin";
+
+    private static final String PASSWORD = "QuoteBuilder@1";
+
+    private static final String PASSWORD_HASH = "$2a$10$8rQGDglElLqAMgxuxmY67OYtcgn6b4vf1gdooItnXk3OqoJQAVMja";
+
+    @State(Scope.Thread)
+    public static class Encoder {
+
+        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    }
+
+    @State(Scope.Thread)
+    public static class Provider {
+
+        AccountAuthenticationProvider authenticationProvider;
+
+        @Setup(Level.Trial)
+        public void setUp(ApplicationState application) {
+            authenticationProvider = application.getBean(AccountAuthenticationProvider.class);
+        }
+    }
+
+    @Benchmark
+    public boolean bcryptMatches(Encoder encoder) {
+        return encoder.passwordEncoder.matches(PASSWORD, PASSWORD_HASH);
+    }
+
+    @Benchmark
+    public Authentication authenticate(Provider provider) {
+        return provider.authenticationProvider.authenticate(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+    }
+}
@@ -0,0 +1,72 @@
+package com.solutionwerk.qb.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solutionwerk.qb.model.Account;
+import com.solutionwerk.qb.model.Profile;
+import com.solutionwerk.qb.model.network.User;
+import com.solutionwerk.qb.service.AccountService;
+import com.solutionwerk.qb.service.ProfileService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of JSON serialization of the entity model by the application
+ * ObjectMapper.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @State(Scope.Thread)
+    public static class Model {
+
+        ObjectMapper objectMapper;
+
+        Account account;
+
+        Profile profile;
+
+        User user;
+
+        @Setup(Level.Trial)
+        public void setUp(ApplicationState application) {
+            objectMapper = application.getBean(ObjectMapper.class);
+            account = application.getBean(AccountService.class).findByUsername("qbAdmin");
+            profile = application.getBean(ProfileService.class).findOne(1L);
+            user = new User();
+            user.setAccount(account);
+            user.setRoles(account.getRoles());
+            user.setProfile(account.getProfile());
+        }
+    }
+
+    @Benchmark
+    public String account(Model model) throws JsonProcessingException {
+        return model.objectMapper.writeValueAsString(model.account);
+    }
+
+    @Benchmark
+    public String profile(Model model) throws JsonProcessingException {
+        return model.objectMapper.writeValueAsString(model.profile);
+    }
+
+    @Benchmark
+    public String user(Model model) throws JsonProcessingException {
+        return model.objectMapper.writeValueAsString(model.user);
+    }
+}
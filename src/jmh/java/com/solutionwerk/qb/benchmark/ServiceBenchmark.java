@@ -0,0 +1,88 @@
+package com.solutionwerk.qb.benchmark;
+
+import com.solutionwerk.qb.model.Profile;
+import com.solutionwerk.qb.security.AccountUserDetailsService;
+import com.solutionwerk.qb.service.ProfileService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the business service read paths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+
+    private static final Long PROFILE_ID = 1L;
+
+    private static final String USERNAME = "qbAdmin";
+
+    @State(Scope.Thread)
+    public static class Services {
+
+        ProfileService profileService;
+
+        AccountUserDetailsService userDetailsService;
+
+        @Setup(Level.Trial)
+        public void setUp(ApplicationState application) {
+            profileService = application.getBean(ProfileService.class);
+            userDetailsService = application.getBean(AccountUserDetailsService.class);
+        }
+    }
+
+    /**
+     * Evicts the "profiles" cache and the Profile second-level cache region
+     * before every invocation so that each findOne reads from the database.
+     */
+    @State(Scope.Thread)
+    public static class EmptyProfileCache {
+
+        ProfileService profileService;
+
+        EntityManagerFactory entityManagerFactory;
+
+        @Setup(Level.Trial)
+        public void setUp(ApplicationState application) {
+            profileService = application.getBean(ProfileService.class);
+            entityManagerFactory = application.getBean(EntityManagerFactory.class);
+        }
+
+        @Setup(Level.Invocation)
+        public void evict() {
+            profileService.evictCache();
+            entityManagerFactory.getCache().evict(Profile.class);
+        }
+    }
+
+    @Benchmark
+    public Profile profileFindOneCached(Services services) {
+        return services.profileService.findOne(PROFILE_ID);
+    }
+
+    @Benchmark
+    public Profile profileFindOneUncached(Services services, EmptyProfileCache emptyCache) {
+        return services.profileService.findOne(PROFILE_ID);
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername(Services services) {
+        return services.userDetailsService.loadUserByUsername(USERNAME);
+    }
+}
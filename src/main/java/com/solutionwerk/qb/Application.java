@@ -1,15 +1,21 @@
 package com.solutionwerk.qb;
 
+import com.fasterxml.jackson.datatype.hibernate4.Hibernate4Module;
+import com.solutionwerk.qb.cache.CacheProperties;
+import com.solutionwerk.qb.cache.CacheReloader;
+import com.solutionwerk.qb.cache.ConfigurableGuavaCacheManager;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.guava.GuavaCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Spring Boot main application class. Serves as both the runtime application
  * entry point and the central Java configuration class.
@@ -36,14 +42,33 @@ public class Application {
 
     /**
      * Create a CacheManager implementation class to be used by Spring where
-     * <code>@Cacheable</code> annotations are applied.
+     * <code>@Cacheable</code> annotations are applied. Each named cache is
+     * bounded and configured by the <code>qb.cache.specs.*</code> properties.
      *
+     * @param cacheProperties The per-cache size and expiry settings.
+     * @param reloaders       The CacheReloaders used by refreshing caches.
      * @return A CacheManager instance.
      */
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(CacheProperties cacheProperties, List<CacheReloader> reloaders) {
+
+        ConfigurableGuavaCacheManager cacheManager = new ConfigurableGuavaCacheManager(cacheProperties, reloaders);
+        cacheManager.setCacheNames(Arrays.asList("accounts", "accountUsernames", "accountReferences", "credentials",
+                "profiles", "profileReferences", "accessTokens", "accessTokenRefreshIndex"));
+        return cacheManager;
+    }
 
-        return new GuavaCacheManager("accounts", "profiles");
+    /**
+     * Registers the Jackson Hibernate module with the application
+     * ObjectMapper. Lazy associations which were not loaded by the fetch plan
+     * of a query are serialized as <code>null</code> rather than loaded by
+     * the serializer.
+     *
+     * @return A Hibernate4Module instance.
+     */
+    @Bean
+    public Hibernate4Module hibernate4Module() {
+        return new Hibernate4Module();
     }
 
 }
@@ -1,10 +1,22 @@
 package com.solutionwerk.qb;
 
 import com.solutionwerk.qb.web.interceptors.ApiInterceptor;
+import com.solutionwerk.qb.web.interceptors.RateLimitInterceptor;
+import com.solutionwerk.qb.web.interceptors.RequestContextCallableInterceptor;
+import com.solutionwerk.qb.web.interceptors.RequestMetricsInterceptor;
+import com.solutionwerk.qb.web.metrics.RequestMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.springframework.web.servlet.handler.MappedInterceptor;
 
 @Configuration
 public class MvcConfig extends WebMvcConfigurerAdapter {
@@ -13,8 +25,74 @@ public class MvcConfig extends WebMvcConfigurerAdapter {
     @Autowired
     private ApiInterceptor apiInterceptor;
 
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Value("${qb.async.pool-size:20}")
+    private int asyncPoolSize;
+
+    @Value("${qb.async.queue-capacity:500}")
+    private int asyncQueueCapacity;
+
+    @Value("${qb.async.timeout:10000}")
+    private long asyncTimeout;
+
+    /**
+     * The executor of the asynchronous API handlers, which return a
+     * <code>Callable</code> so the container thread is released while the
+     * service call waits on the database. Sized separately from the container
+     * thread pool; a request refused by a full queue is answered with HTTP
+     * status 503.
+     * <p/>
+     * With a pool size of 0 the handlers run on the container thread, e.g. in
+     * tests which roll back the transaction of the test thread.
+     *
+     * @return An AsyncTaskExecutor.
+     */
+    @Bean
+    public AsyncTaskExecutor apiTaskExecutor() {
+        if (asyncPoolSize == 0) {
+            return new TaskExecutorAdapter(new SyncTaskExecutor());
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncPoolSize);
+        executor.setMaxPoolSize(asyncPoolSize);
+        executor.setQueueCapacity(asyncQueueCapacity);
+        executor.setThreadNamePrefix("api-");
+        return executor;
+    }
+
+    /**
+     * Runs asynchronous handlers on the apiTaskExecutor, propagating the
+     * RequestContext to its threads. A handler which has not completed within
+     * <code>qb.async.timeout</code> milliseconds is answered with HTTP status
+     * 503.
+     *
+     * @param configurer The AsyncSupportConfigurer.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(apiTaskExecutor());
+        configurer.setDefaultTimeout(asyncTimeout);
+        configurer.registerCallableInterceptors(new RequestContextCallableInterceptor());
+    }
+
+    /**
+     * The RequestMetricsInterceptor as a MappedInterceptor bean, which every
+     * handler mapping detects, rather than through addInterceptors, which
+     * reaches only the MVC handler mappings.
+     *
+     * @param requestMetrics The RequestMetrics recording each handler.
+     * @return A MappedInterceptor applying to all paths.
+     */
+    @Bean
+    public MappedInterceptor requestMetricsInterceptor(RequestMetrics requestMetrics) {
+        return new MappedInterceptor(null, new RequestMetricsInterceptor(requestMetrics));
+    }
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns(API_CONTROLLER_MAPPING + "/**");
         registry.addInterceptor(apiInterceptor).addPathPatterns(API_CONTROLLER_MAPPING + "/**");
 //                .excludePathPatterns(API_CONTROLLER_MAPPING + "/**");
     }
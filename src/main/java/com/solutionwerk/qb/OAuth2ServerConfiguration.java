@@ -16,12 +16,19 @@
 
 package com.solutionwerk.qb;
 
+import com.solutionwerk.qb.cache.SingleFlight;
 import com.solutionwerk.qb.security.AccountUserDetailsService;
+import com.solutionwerk.qb.security.CachingTokenStore;
+import com.solutionwerk.qb.security.JwtJdbcTokenStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.oauth2.config.annotation.configurers.ClientDetailsServiceConfigurer;
@@ -32,7 +39,10 @@ import org.springframework.security.oauth2.config.annotation.web.configuration.R
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.ResourceServerSecurityConfigurer;
 import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.TokenStore;
 import org.springframework.security.oauth2.provider.token.store.JdbcTokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
 
@@ -59,6 +69,8 @@ public class OAuth2ServerConfiguration {
                     .authorizeRequests()
                     .antMatchers("/api/accounts").hasRole("ADMIN")
                     .antMatchers("/api/profiles").hasRole("ADMIN")
+                    .antMatchers("/api/profiles/batch", "/api/accounts/users/batch").hasRole("ADMIN")
+                    .antMatchers(HttpMethod.PATCH, "/api/accounts/*").hasRole("ADMIN")
                     .antMatchers("/").authenticated();
         }
     }
@@ -78,7 +90,19 @@ public class OAuth2ServerConfiguration {
         @Autowired
         DataSource dataSource;
 
-        private JdbcTokenStore tokenStore;
+        @Autowired
+        private CacheManager cacheManager;
+
+        @Autowired
+        private SingleFlight singleFlight;
+
+        /**
+         * Present only when <code>qb.oauth2.token-mode=jwt</code>.
+         */
+        @Autowired(required = false)
+        private JwtAccessTokenConverter jwtAccessTokenConverter;
+
+        private TokenStore tokenStore;
 
         @Autowired
         @Qualifier("authenticationManagerBean")
@@ -93,6 +117,13 @@ public class OAuth2ServerConfiguration {
                     .tokenStore(tokenStore())
                     .authenticationManager(this.authenticationManager)
                     .userDetailsService(userDetailsService);
+
+            if (jwtAccessTokenConverter != null) {
+                // Refresh tokens are re-signed with every access token, so each refresh stores a new one
+                endpoints
+                        .accessTokenConverter(jwtAccessTokenConverter)
+                        .reuseRefreshTokens(false);
+            }
         }
 
         @Override
@@ -116,12 +147,57 @@ public class OAuth2ServerConfiguration {
             return tokenServices;
         }
 
+        /**
+         * By default access tokens are persisted by a JdbcTokenStore and cached
+         * in the "accessTokens" cache, so that validating a hot token needs no
+         * SQL. In <code>jwt</code> token mode access tokens are self-contained
+         * and only refresh tokens are persisted.
+         */
         @Bean
-        public JdbcTokenStore tokenStore() {
+        public TokenStore tokenStore() {
             if (this.tokenStore == null) {
-                this.tokenStore = new JdbcTokenStore(dataSource);
+                JdbcTokenStore jdbcTokenStore = new JdbcTokenStore(dataSource);
+                if (jwtAccessTokenConverter != null) {
+                    this.tokenStore = new JwtJdbcTokenStore(jwtAccessTokenConverter, jdbcTokenStore);
+                } else {
+                    this.tokenStore = new CachingTokenStore(jdbcTokenStore,
+                            cacheManager.getCache("accessTokens"), cacheManager.getCache("accessTokenRefreshIndex"),
+                            singleFlight);
+                }
             }
             return this.tokenStore;
         }
     }
+
+    /**
+     * Opt-in self-contained access tokens, enabled by
+     * <code>qb.oauth2.token-mode=jwt</code>. Tokens are signed with
+     * <code>qb.oauth2.jwt.signing-key</code>, either a shared secret or a PEM
+     * RSA private key. With an RSA key, <code>qb.oauth2.jwt.verifier-key</code>
+     * holds the matching PEM public key.
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "qb.oauth2", name = "token-mode", havingValue = "jwt")
+    protected static class JwtTokenConfiguration {
+
+        @Value("${qb.oauth2.jwt.signing-key:}")
+        private String signingKey;
+
+        @Value("${qb.oauth2.jwt.verifier-key:}")
+        private String verifierKey;
+
+        @Bean
+        public JwtAccessTokenConverter jwtAccessTokenConverter() {
+            if (!StringUtils.hasText(signingKey)) {
+                // A generated key would differ per node and per restart
+                throw new IllegalStateException("qb.oauth2.jwt.signing-key must be set when qb.oauth2.token-mode=jwt");
+            }
+            JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
+            converter.setSigningKey(signingKey);
+            if (StringUtils.hasText(verifierKey)) {
+                converter.setVerifierKey(verifierKey);
+            }
+            return converter;
+        }
+    }
 }
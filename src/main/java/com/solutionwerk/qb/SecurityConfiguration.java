@@ -1,7 +1,12 @@
 package com.solutionwerk.qb;
 
 import com.solutionwerk.qb.security.AccountAuthenticationProvider;
+import com.solutionwerk.qb.security.BoundedPasswordEncoder;
+import com.solutionwerk.qb.security.CredentialCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -29,13 +34,41 @@ public class SecurityConfiguration {
     /**
      * Supplies a PasswordEncoder instance to the Spring ApplicationContext. The
      * PasswordEncoder is used by the AuthenticationProvider to perform one-way
-     * hash operations on passwords for credential comparison.
+     * hash operations on passwords for credential comparison. BCrypt work runs
+     * on a bounded worker pool rather than on request threads.
      *
+     * @param strength The BCrypt cost factor (log2 rounds) used when hashing
+     *                 new passwords. Existing hashes are verified with the cost
+     *                 factor they were created with.
+     * @param poolSize The number of password worker threads, or 0 for the
+     *                 number of available processors.
+     * @param queueCapacity The number of password operations which may wait
+     *                      for a worker.
+     * @param timeout The maximum time (milliseconds) a request waits for a
+     *                password operation, including time queued.
      * @return A PasswordEncoder.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${qb.security.bcrypt.strength:10}") int strength,
+                                           @Value("${qb.security.password-pool.size:0}") int poolSize,
+                                           @Value("${qb.security.password-pool.queue-capacity:100}") int queueCapacity,
+                                           @Value("${qb.security.password-pool.timeout:500}") long timeout) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength),
+                poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors(), queueCapacity, timeout);
+    }
+
+    /**
+     * Supplies a CredentialCache backed by the "credentials" cache when
+     * <code>qb.security.credential-cache.enabled=true</code>, allowing repeated
+     * logins to skip the BCrypt comparison.
+     *
+     * @param cacheManager The application CacheManager.
+     * @return A CredentialCache.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "qb.security.credential-cache", name = "enabled", havingValue = "true")
+    public CredentialCache credentialCache(CacheManager cacheManager) {
+        return new CredentialCache(cacheManager.getCache("credentials"));
     }
 
     /**
@@ -0,0 +1,89 @@
+package com.solutionwerk.qb.cache;
+
+import com.google.common.cache.CacheStats;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Statistics;
+import org.hibernate.cache.ehcache.internal.regions.EhcacheDataRegion;
+import org.hibernate.cache.spi.Region;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.guava.GuavaCache;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the Guava statistics of every application cache through the
+ * actuator <code>/metrics</code> endpoint. For each cache the following
+ * metrics are published:
+ * <ul>
+ * <li>cache.{name}.hits - The number of lookups which found an entry
+ * <li>cache.{name}.misses - The number of lookups which found no entry
+ * <li>cache.{name}.evictions - The number of entries evicted by size or expiry
+ * <li>cache.{name}.loads - The number of background refreshes
+ * <li>cache.{name}.load.avg.millis - The average refresh time
+ * <li>cache.{name}.entries - The approximate number of entries
+ * </ul>
+ * The Hibernate second-level cache regions held by Ehcache are published as
+ * cache.hibernate.{region}.hits, misses, evictions and entries.
+ * <p/>
+ * Statistics are only available for caches whose Spec, or whose Ehcache
+ * configuration, records them.
+ */
+@Component
+public class CacheMetrics implements PublicMetrics {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof GuavaCache) {
+                addMetrics(metrics, "cache." + name + ".", ((GuavaCache) cache).getNativeCache());
+            }
+        }
+        Map<String, Region> regions = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getAllSecondLevelCacheRegions();
+        for (Map.Entry<String, Region> region : regions.entrySet()) {
+            if (region.getValue() instanceof EhcacheDataRegion) {
+                addMetrics(metrics, "cache.hibernate." + region.getKey() + ".",
+                        ((EhcacheDataRegion) region.getValue()).getEhcache());
+            }
+        }
+        return metrics;
+    }
+
+    private void addMetrics(Collection<Metric<?>> metrics, String prefix, Ehcache ehcache) {
+        Statistics stats = ehcache.getStatistics();
+        metrics.add(new Metric<>(prefix + "hits", stats.getCacheHits()));
+        metrics.add(new Metric<>(prefix + "misses", stats.getCacheMisses()));
+        metrics.add(new Metric<>(prefix + "evictions", stats.getEvictionCount()));
+        metrics.add(new Metric<>(prefix + "entries", stats.getObjectCount()));
+    }
+
+    private void addMetrics(Collection<Metric<?>> metrics, String prefix,
+                            com.google.common.cache.Cache<Object, Object> nativeCache) {
+        CacheStats stats = nativeCache.stats();
+        metrics.add(new Metric<>(prefix + "hits", stats.hitCount()));
+        metrics.add(new Metric<>(prefix + "misses", stats.missCount()));
+        metrics.add(new Metric<>(prefix + "evictions", stats.evictionCount()));
+        metrics.add(new Metric<>(prefix + "loads", stats.loadCount()));
+        metrics.add(new Metric<>(prefix + "load.avg.millis",
+                TimeUnit.NANOSECONDS.toMillis((long) stats.averageLoadPenalty())));
+        metrics.add(new Metric<>(prefix + "entries", nativeCache.size()));
+    }
+}
@@ -0,0 +1,145 @@
+package com.solutionwerk.qb.cache;
+
+import com.google.common.cache.CacheBuilder;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CacheProperties class binds the <code>qb.cache.*</code> application
+ * properties. Each named cache managed by the application CacheManager may be
+ * given its own {@link Spec}. Caches without an explicit Spec use the default
+ * Spec values.
+ * <p/>
+ * Example:
+ * <pre>
+ * qb.cache.specs.profiles.maximum-size=10000
+ * qb.cache.specs.profiles.expire-after-write=3600
+ * </pre>
+ */
+@Component
+@ConfigurationProperties(prefix = "qb.cache")
+public class CacheProperties {
+
+    /**
+     * The cache Spec values keyed by cache name.
+     */
+    private Map<String, Spec> specs = new LinkedHashMap<>();
+
+    public Map<String, Spec> getSpecs() {
+        return specs;
+    }
+
+    public void setSpecs(Map<String, Spec> specs) {
+        this.specs = specs;
+    }
+
+    /**
+     * Returns the Spec for the named cache, or a default Spec if none is
+     * configured.
+     *
+     * @param name A String cache name.
+     * @return A Spec instance.
+     */
+    public Spec getSpec(String name) {
+        Spec spec = specs.get(name);
+        return spec != null ? spec : new Spec();
+    }
+
+    /**
+     * The size and expiry settings of a single named cache. All durations are
+     * expressed in seconds. A <code>null</code> duration disables the related
+     * policy.
+     */
+    public static class Spec {
+
+        /**
+         * The maximum number of entries held by the cache.
+         */
+        private long maximumSize = 1000;
+
+        /**
+         * Seconds after an entry is written before it expires.
+         */
+        private Long expireAfterWrite;
+
+        /**
+         * Seconds after an entry is last read or written before it expires.
+         */
+        private Long expireAfterAccess;
+
+        /**
+         * Seconds after an entry is written before it is reloaded in the
+         * background. Only applied when a CacheReloader exists for the cache.
+         */
+        private Long refreshAfterWrite;
+
+        /**
+         * Whether hit, miss, eviction and load statistics are recorded.
+         */
+        private boolean recordStats = true;
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Long getExpireAfterWrite() {
+            return expireAfterWrite;
+        }
+
+        public void setExpireAfterWrite(Long expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+        }
+
+        public Long getExpireAfterAccess() {
+            return expireAfterAccess;
+        }
+
+        public void setExpireAfterAccess(Long expireAfterAccess) {
+            this.expireAfterAccess = expireAfterAccess;
+        }
+
+        public Long getRefreshAfterWrite() {
+            return refreshAfterWrite;
+        }
+
+        public void setRefreshAfterWrite(Long refreshAfterWrite) {
+            this.refreshAfterWrite = refreshAfterWrite;
+        }
+
+        public boolean isRecordStats() {
+            return recordStats;
+        }
+
+        public void setRecordStats(boolean recordStats) {
+            this.recordStats = recordStats;
+        }
+
+        /**
+         * Creates a CacheBuilder applying the size, expiry and statistics
+         * settings of this Spec. Refresh is left to the caller.
+         *
+         * @return A CacheBuilder.
+         */
+        public CacheBuilder<Object, Object> newCacheBuilder() {
+            CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(maximumSize);
+            if (expireAfterWrite != null) {
+                builder.expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS);
+            }
+            if (expireAfterAccess != null) {
+                builder.expireAfterAccess(expireAfterAccess, TimeUnit.SECONDS);
+            }
+            if (recordStats) {
+                builder.recordStats();
+            }
+            return builder;
+        }
+    }
+}
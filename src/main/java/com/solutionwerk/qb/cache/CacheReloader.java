@@ -0,0 +1,30 @@
+package com.solutionwerk.qb.cache;
+
+/**
+ * The CacheReloader interface defines the behavioral contract for components
+ * which reload the value of a single cache entry from the system of record.
+ * <p/>
+ * A CacheReloader is required for a named cache to honor the
+ * <code>refresh-after-write</code> setting. Entries are only loaded on a miss
+ * by the <code>@Cacheable</code> service methods; through the Spring cache a
+ * CacheReloader is used to refresh entries which are already cached, and it
+ * loads the entries requested from the native Guava LoadingCache.
+ */
+public interface CacheReloader {
+
+    /**
+     * The name of the cache whose entries are reloaded by this component.
+     *
+     * @return A String cache name.
+     */
+    String getCacheName();
+
+    /**
+     * Reload the value for the supplied cache key.
+     *
+     * @param key The cache key.
+     * @return The current value or <code>null</code> if none exists.
+     */
+    Object reload(Object key);
+
+}
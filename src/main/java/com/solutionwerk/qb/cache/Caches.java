@@ -0,0 +1,81 @@
+package com.solutionwerk.qb.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bulk operations on the application caches, which the Spring Cache
+ * abstraction only offers per key.
+ */
+public final class Caches {
+
+    private Caches() {
+
+    }
+
+    /**
+     * Returns the values of many keys. The present values are read from the
+     * cache in one bulk lookup where the cache is a Guava cache; the missing
+     * values are loaded together by the loader and put into the cache.
+     *
+     * @param cache  A Spring Cache.
+     * @param keys   The keys to look up.
+     * @param type   The value type. A cached value of another type, e.g. a
+     *               cached <code>null</code>, is treated as missing.
+     * @param loader Loads the values of a Collection of missing keys. Keys
+     *               without a value are omitted from the result.
+     * @param keyOf  Returns the key of a loaded value.
+     * @param <K>    The key type.
+     * @param <V>    The value type.
+     * @return A Map of keys to values, in the iteration order of the keys.
+     * Keys without a value are omitted.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Map<K, V> getAll(Cache cache, Collection<K> keys, Class<V> type,
+                                          Function<Collection<K>, Collection<V>> loader, Function<V, K> keyOf) {
+        Map<K, Object> present;
+        if (cache.getNativeCache() instanceof com.google.common.cache.Cache) {
+            present = ((com.google.common.cache.Cache<K, Object>) cache.getNativeCache()).getAllPresent(keys);
+        } else {
+            present = new LinkedHashMap<>();
+            for (K key : keys) {
+                Cache.ValueWrapper wrapper = cache.get(key);
+                if (wrapper != null) {
+                    present.put(key, wrapper.get());
+                }
+            }
+        }
+
+        List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            if (!type.isInstance(present.get(key))) {
+                missing.add(key);
+            }
+        }
+        Map<K, V> loaded = new LinkedHashMap<>();
+        if (!missing.isEmpty()) {
+            for (V value : loader.apply(missing)) {
+                loaded.put(keyOf.apply(value), value);
+                cache.put(keyOf.apply(value), value);
+            }
+        }
+
+        Map<K, V> values = new LinkedHashMap<>();
+        for (K key : keys) {
+            Object value = present.get(key);
+            if (!type.isInstance(value)) {
+                value = loaded.get(key);
+            }
+            if (value != null) {
+                values.put(key, (V) value);
+            }
+        }
+        return values;
+    }
+}
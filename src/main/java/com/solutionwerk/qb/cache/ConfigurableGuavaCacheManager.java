@@ -0,0 +1,147 @@
+package com.solutionwerk.qb.cache;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.guava.GuavaCache;
+import org.springframework.cache.guava.GuavaCacheManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A GuavaCacheManager which builds each named cache from its own
+ * {@link CacheProperties.Spec}, so that every cache has an individual maximum
+ * size, expiry policy and statistics setting.
+ * <p/>
+ * When a Spec declares <code>refresh-after-write</code> and a
+ * {@link CacheReloader} exists for the cache, stale entries are reloaded on a
+ * background thread while readers continue to receive the current value.
+ */
+public class ConfigurableGuavaCacheManager extends GuavaCacheManager implements DisposableBean {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    private final CacheProperties cacheProperties;
+
+    private final Map<String, CacheReloader> reloaders = new HashMap<>();
+
+    /**
+     * Executes background refreshes. Created only when a refreshing cache
+     * exists.
+     */
+    private ExecutorService refreshExecutor;
+
+    public ConfigurableGuavaCacheManager(CacheProperties cacheProperties, Collection<CacheReloader> reloaders) {
+        this.cacheProperties = cacheProperties;
+        for (CacheReloader reloader : reloaders) {
+            this.reloaders.put(reloader.getCacheName(), reloader);
+        }
+    }
+
+    @Override
+    protected Cache createGuavaCache(String name) {
+        return new NonLoadingGuavaCache(name, createNativeGuavaCache(name), isAllowNullValues());
+    }
+
+    @Override
+    protected com.google.common.cache.Cache<Object, Object> createNativeGuavaCache(String name) {
+        CacheProperties.Spec spec = cacheProperties.getSpec(name);
+
+        CacheBuilder<Object, Object> builder = spec.newCacheBuilder();
+
+        if (spec.getRefreshAfterWrite() != null) {
+            CacheReloader reloader = reloaders.get(name);
+            if (reloader == null) {
+                LOGGER.warn("Cache '{}' declares refresh-after-write but has no CacheReloader; refresh disabled.", name);
+            } else {
+                builder.refreshAfterWrite(spec.getRefreshAfterWrite(), TimeUnit.SECONDS);
+                return builder.build(new RefreshingCacheLoader(reloader, getRefreshExecutor()));
+            }
+        }
+
+        return builder.build();
+    }
+
+    private synchronized ExecutorService getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            refreshExecutor = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("cache-refresh-%d").setDaemon(true).build());
+        }
+        return refreshExecutor;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * A GuavaCache which never invokes the CacheLoader on a miss. Misses are
+     * loaded by the <code>@Cacheable</code> method; the CacheLoader of a
+     * refreshing cache is only used to reload present entries.
+     */
+    private static class NonLoadingGuavaCache extends GuavaCache {
+
+        NonLoadingGuavaCache(String name, com.google.common.cache.Cache<Object, Object> cache, boolean allowNullValues) {
+            super(name, cache, allowNullValues);
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return toValueWrapper(lookup(key));
+        }
+    }
+
+    /**
+     * A CacheLoader which loads and reloads entries through a CacheReloader.
+     * Reloads run asynchronously; if the reloader finds no value, the current
+     * value is retained until it expires or is evicted.
+     */
+    private static class RefreshingCacheLoader extends CacheLoader<Object, Object> {
+
+        private final CacheReloader reloader;
+
+        private final ExecutorService executor;
+
+        RefreshingCacheLoader(CacheReloader reloader, ExecutorService executor) {
+            this.reloader = reloader;
+            this.executor = executor;
+        }
+
+        /**
+         * Loads a value through the CacheReloader. The Spring cache never
+         * calls this on a miss, but a caller of the native LoadingCache does.
+         * A missing value is reported by Guava as an InvalidCacheLoadException.
+         */
+        @Override
+        public Object load(Object key) {
+            return reloader.reload(key);
+        }
+
+        @Override
+        public ListenableFuture<Object> reload(Object key, Object oldValue) {
+            ListenableFutureTask<Object> task = ListenableFutureTask.create(() -> {
+                Object value = reloader.reload(key);
+                return value != null ? value : oldValue;
+            });
+            executor.execute(task);
+            return task;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.solutionwerk.qb.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent loads of the same cache entry. The first caller to
+ * miss a key runs the loader; callers missing the same key while that load is
+ * in flight wait for, and share, its result instead of querying the database
+ * again. A waiting caller which is not served within
+ * <code>qb.cache.single-flight.timeout</code> milliseconds runs the loader
+ * itself. A failed load fails its waiting callers with the same exception.
+ * <p/>
+ * Loads within a read-write transaction are never shared, since the caller may
+ * modify the loaded entity in its own persistence context.
+ * <p/>
+ * The following metrics are published:
+ * <ul>
+ * <li>cache.single-flight.loads - The loads run for a key not already in flight
+ * <li>cache.single-flight.coalesced - The calls served by another caller's load
+ * <li>cache.single-flight.timeouts - The calls which stopped waiting and loaded
+ * </ul>
+ */
+@Component
+public class SingleFlight implements PublicMetrics {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    @Value("${qb.cache.single-flight.timeout:5000}")
+    private long timeout;
+
+    private final ConcurrentMap<List<Object>, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLong loads = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Returns the value loaded for a cache entry, sharing a load of the same
+     * entry already in flight.
+     *
+     * @param name   The cache name.
+     * @param key    The cache key.
+     * @param loader Loads the value, e.g. from a repository.
+     * @param <T>    The value type.
+     * @return The loaded value, which may be <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String name, Object key, Supplier<T> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.get();
+        }
+
+        List<Object> flightKey = Arrays.asList(name, key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = flights.putIfAbsent(flightKey, flight);
+        if (inFlight == null) {
+            loads.incrementAndGet();
+            try {
+                T value = loader.get();
+                flight.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                flights.remove(flightKey, flight);
+            }
+        }
+
+        coalesced.incrementAndGet();
+        try {
+            return (T) inFlight.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            LOGGER.warn("Load of {} key {} still in flight after {} ms; loading again.", name, key, timeout);
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return loader.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("cache.single-flight.loads", loads.get()));
+        metrics.add(new Metric<>("cache.single-flight.coalesced", coalesced.get()));
+        metrics.add(new Metric<>("cache.single-flight.timeouts", timeouts.get()));
+        return metrics;
+    }
+}
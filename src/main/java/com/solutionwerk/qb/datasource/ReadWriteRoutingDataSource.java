@@ -0,0 +1,104 @@
+package com.solutionwerk.qb.datasource;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.solutionwerk.qb.util.RequestContext;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes connections of read-only transactions to a replica database and all
+ * other connections to the primary database.
+ * <p/>
+ * Reads which must observe an earlier write are kept on the primary for as
+ * long as the replica may lag behind it:
+ * <ul>
+ * <li>for the rest of a request once the request has written, and
+ * <li>for <code>readYourWritesWindow</code> milliseconds after a write by the
+ * same user, covering the user's following requests.
+ * </ul>
+ * A thread which does not serve requests, such as a scheduler thread, is kept
+ * on the primary only until its writing transaction completes.
+ * The transaction manager obtains its connection before it publishes the
+ * read-only flag of the transaction, so this DataSource must be wrapped in a
+ * {@link LazyConnectionDataSourceProxy}, which defers choosing the route to
+ * the first statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * The routing keys.
+     */
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    /**
+     * The users who wrote within the read-your-writes window, or
+     * <code>null</code> if the window is disabled.
+     */
+    private final Cache<String, Boolean> recentWriters;
+
+    /**
+     * Creates a ReadWriteRoutingDataSource.
+     *
+     * @param primary              The DataSource of the primary database.
+     * @param replica              The DataSource of the replica database.
+     * @param readYourWritesWindow The milliseconds after a write during which
+     *                             the reads of the writing user are served by
+     *                             the primary, or 0 to disable.
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long readYourWritesWindow) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.recentWriters = readYourWritesWindow > 0
+                ? CacheBuilder.newBuilder().expireAfterWrite(readYourWritesWindow, TimeUnit.MILLISECONDS).build()
+                : null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                markWritten();
+            }
+            return Route.PRIMARY;
+        }
+        return hasRecentlyWritten() ? Route.PRIMARY : Route.REPLICA;
+    }
+
+    private void markWritten() {
+        if (!RequestContext.isInitialized() && !RequestContext.hasWritten()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    RequestContext.clearWritten();
+                }
+            });
+        }
+        RequestContext.markWritten();
+        String username = RequestContext.getUsername();
+        if (recentWriters != null && username != null) {
+            recentWriters.put(username, Boolean.TRUE);
+        }
+    }
+
+    private boolean hasRecentlyWritten() {
+        if (RequestContext.hasWritten()) {
+            return true;
+        }
+        String username = RequestContext.getUsername();
+        return recentWriters != null && username != null && recentWriters.getIfPresent(username) != null;
+    }
+}
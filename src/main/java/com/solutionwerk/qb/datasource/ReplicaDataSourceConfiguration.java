@@ -0,0 +1,97 @@
+package com.solutionwerk.qb.datasource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the single <code>spring.datasource</code> DataSource with a
+ * {@link ReadWriteRoutingDataSource} when a replica is configured. The primary
+ * DataSource is built from the <code>spring.datasource.*</code> properties,
+ * the replica from the <code>qb.datasource.replica.*</code> properties, which
+ * accept the same connection and pool settings.
+ * <p/>
+ * Example, with a second in-memory HSQLDB instance standing in for the
+ * replica:
+ * <pre>
+ * qb.datasource.replica.url=jdbc:hsqldb:mem:replica
+ * qb.datasource.replica.username=sa
+ * qb.datasource.replica.initialize=true
+ * </pre>
+ * With <code>initialize</code> set, the replica is populated by the
+ * <code>spring.datasource.schema</code> and <code>spring.datasource.data</code>
+ * scripts, as the primary is.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "qb.datasource.replica", name = "url")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = DataSourceProperties.PREFIX)
+    public DataSource primaryDataSource(DataSourceProperties properties) {
+        return DataSourceBuilder.create(properties.getClassLoader())
+                .driverClassName(properties.getDriverClassName())
+                .url(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "qb.datasource.replica")
+    public DataSource replicaDataSource(@Value("${qb.datasource.replica.url}") String url) {
+        return DataSourceBuilder.create().url(url).build();
+    }
+
+    /**
+     * The application DataSource, used by JPA and the OAuth2 token store.
+     *
+     * @param primary              The primary DataSource.
+     * @param replica              The replica DataSource.
+     * @param readYourWritesWindow The milliseconds after a write during which
+     *                             the reads of the writing user are served by
+     *                             the primary.
+     * @param initializeReplica    Whether to populate the replica with the
+     *                             initialization scripts of the primary.
+     * @param properties           The <code>spring.datasource</code> properties.
+     * @param resourceLoader       The ResourceLoader of the scripts.
+     * @return A DataSource routing read-only transactions to the replica.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 @Value("${qb.datasource.read-your-writes-window:5000}") long readYourWritesWindow,
+                                 @Value("${qb.datasource.replica.initialize:false}") boolean initializeReplica,
+                                 DataSourceProperties properties,
+                                 ResourceLoader resourceLoader) {
+        if (initializeReplica) {
+            // Before the router is published, so no read reaches an empty replica
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+            for (String locations : new String[]{properties.getSchema(), properties.getData()}) {
+                for (String location : StringUtils.commaDelimitedListToStringArray(locations)) {
+                    populator.addScript(resourceLoader.getResource(location.trim()));
+                }
+            }
+            DatabasePopulatorUtils.execute(populator, replica);
+        }
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replica, readYourWritesWindow);
+        // The proxy reads the connection defaults from the initialized router
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
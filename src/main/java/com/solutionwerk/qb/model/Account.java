@@ -1,5 +1,9 @@
 package com.solutionwerk.qb.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.util.List;
@@ -8,14 +12,42 @@ import java.util.List;
  * The Account class is an entity model object. An Account describes the
  * security credentials and authentication flags that permit access to
  * application functionality.
+ * <p/>
+ * The roles and profile associations are lazy. Readers select one of the
+ * named fetch plans below, each of which loads in a single query:
+ * <ul>
+ * <li>Account.summary - Account attributes only
+ * <li>Account.auth - Account attributes and roles, for authentication
+ * <li>Account.full - Account attributes, roles and profile
+ * </ul>
+ * Updates write only the changed columns.
+ * <p/>
+ * Accounts and their roles collections are held in the read-write
+ * second-level cache regions accountEntities and accountRoles.
  *
  * @author Piyush Ramavat
  */
 @Entity
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "accountEntities")
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Account.SUMMARY),
+        @NamedEntityGraph(name = Account.AUTH, attributeNodes = @NamedAttributeNode("roles")),
+        @NamedEntityGraph(name = Account.FULL, attributeNodes = {
+                @NamedAttributeNode("roles"),
+                @NamedAttributeNode("profile")})
+})
 public class Account extends TransactionalEntity {
 
     private static final long serialVersionUID = 1L;
 
+    public static final String SUMMARY = "Account.summary";
+
+    public static final String AUTH = "Account.auth";
+
+    public static final String FULL = "Account.full";
+
     @NotNull
     private String username;
 
@@ -34,7 +66,8 @@ public class Account extends TransactionalEntity {
     @NotNull
     private boolean locked = false;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "accountRoles")
     @JoinTable(
             name = "AccountRole",
             joinColumns = @JoinColumn(
@@ -0,0 +1,196 @@
+package com.solutionwerk.qb.model;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.jdbc.AbstractReturningWork;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates primary key identifiers from blocks reserved in the
+ * <code>IdSequence</code> table, one row per entity table. Each node reserves
+ * a block of <code>block_size</code> identifiers at a time, in its own
+ * transaction, and hands them out from memory without locking. Identifiers
+ * are therefore known before the INSERT, so inserts can be deferred to the
+ * flush and sent in JDBC batches.
+ * <p/>
+ * A block is reserved by incrementing the row and then reading back the
+ * incremented value. The UPDATE locks the row and always sees the latest
+ * committed value, whatever the isolation level, so concurrent reservations
+ * by other nodes queue behind it rather than conflict.
+ * <p/>
+ * Identifiers are unique across nodes but only ordered within a node; a
+ * restart skips the rest of the current block. A missing
+ * <code>IdSequence</code> row is initialized from the greatest identifier in
+ * the entity table; if another node initializes it first, the duplicate key
+ * is ignored.
+ */
+public class PooledIdGenerator implements PersistentIdentifierGenerator, Configurable {
+
+    public static final String BLOCK_SIZE = "block_size";
+
+    public static final String SEQUENCE_TABLE = "IdSequence";
+
+    /**
+     * The attempts to reserve a block: one to find the row missing, one to
+     * increment it once initialized, and one spare.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * The SQLState class of integrity constraint violations, such as a
+     * duplicate key.
+     */
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    private String tableName;
+
+    private int blockSize;
+
+    private volatile Block block = new Block(0, 0);
+
+    @Override
+    public void configure(Type type, Properties params, Dialect dialect) throws MappingException {
+        tableName = params.getProperty(TABLE);
+        blockSize = ConfigurationHelper.getInt(BLOCK_SIZE, params, 50);
+        if (blockSize < 1) {
+            throw new MappingException("The " + BLOCK_SIZE + " of " + tableName + " identifiers must be positive.");
+        }
+    }
+
+    @Override
+    public Serializable generate(SessionImplementor session, Object object) throws HibernateException {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.limit) {
+                return id;
+            }
+            synchronized (this) {
+                // Another thread may have reserved a block while this one waited
+                if (block == current) {
+                    block = reserve(session);
+                }
+            }
+        }
+    }
+
+    private Block reserve(SessionImplementor session) {
+        long first = session.getTransactionCoordinator().getTransaction().createIsolationDelegate().delegateWork(
+                new AbstractReturningWork<Long>() {
+                    @Override
+                    public Long execute(Connection connection) throws SQLException {
+                        return reserve(connection);
+                    }
+                }, true);
+        LOGGER.debug("Reserved {} identifiers [{}, {}).", tableName, first, first + blockSize);
+        return new Block(first, first + blockSize);
+    }
+
+    /**
+     * Reserves the next block of identifiers. The caller commits the work.
+     *
+     * @param connection The Connection of an isolated transaction.
+     * @return The first identifier of the block.
+     * @throws SQLException Thrown if the block cannot be reserved.
+     */
+    long reserve(Connection connection) throws SQLException {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (increment(connection)) {
+                return select(connection) - blockSize;
+            }
+            insert(connection);
+        }
+        throw new SQLException("Could not reserve " + tableName + " identifiers after " + MAX_ATTEMPTS + " attempts.");
+    }
+
+    private boolean increment(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE " + SEQUENCE_TABLE + " SET nextValue = nextValue + ? WHERE name = ?")) {
+            statement.setLong(1, blockSize);
+            statement.setString(2, tableName);
+            return statement.executeUpdate() == 1;
+        }
+    }
+
+    private long select(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT nextValue FROM " + SEQUENCE_TABLE + " WHERE name = ?")) {
+            statement.setString(1, tableName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new SQLException("The " + tableName + " row of " + SEQUENCE_TABLE + " disappeared.");
+                }
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private void insert(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO " + SEQUENCE_TABLE + " (name, nextValue) SELECT ?, COALESCE(MAX(id), 0) + 1 FROM " + tableName)) {
+            statement.setString(1, tableName);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            if (e.getSQLState() == null || !e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                throw e;
+            }
+            // Initialized concurrently by another node
+            LOGGER.debug("The {} row of {} was initialized concurrently: {}", tableName, SEQUENCE_TABLE, e.getMessage());
+        }
+    }
+
+    @Override
+    public String[] sqlCreateStrings(Dialect dialect) throws HibernateException {
+        return new String[]{
+                dialect.getCreateTableString() + " " + SEQUENCE_TABLE + " (name "
+                        + dialect.getTypeName(java.sql.Types.VARCHAR, 100, 0, 0) + " not null, nextValue "
+                        + dialect.getTypeName(java.sql.Types.BIGINT) + " not null, primary key (name))"
+        };
+    }
+
+    @Override
+    public String[] sqlDropStrings(Dialect dialect) throws HibernateException {
+        return new String[]{dialect.getDropTableString(SEQUENCE_TABLE)};
+    }
+
+    @Override
+    public Object generatorKey() {
+        return SEQUENCE_TABLE;
+    }
+
+    /**
+     * A reserved range of identifiers, from <code>next</code> inclusive to
+     * <code>limit</code> exclusive.
+     */
+    private static class Block {
+
+        private final AtomicLong next;
+
+        private final long limit;
+
+        Block(long next, long limit) {
+            this.next = new AtomicLong(next);
+            this.limit = limit;
+        }
+    }
+}
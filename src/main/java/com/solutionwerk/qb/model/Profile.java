@@ -1,13 +1,23 @@
 package com.solutionwerk.qb.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 
 /**
- * The Profile class is an entity model object.
+ * The Profile class is an entity model object. Updates write only the
+ * changed columns. Profiles are held in the read-write second-level cache
+ * region profileEntities.
  *
  * @author Piyush Ramavat
  */
 @Entity
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "profileEntities")
 public class Profile extends TransactionalEntity {
 
     private static final long serialVersionUID = 1L;
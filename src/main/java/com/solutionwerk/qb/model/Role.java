@@ -1,15 +1,26 @@
 package com.solutionwerk.qb.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 
 /**
  * The Role class is an entity model object. A Role describes a privilege level
  * within the application. A Role is used to authorize an Account to access a
  * set of application resources.
+ * <p/>
+ * Roles are immutable reference data, held in the read-only second-level
+ * cache region roleEntities.
  *
  * @author Piyush Ramavat
  */
 @Entity
+@Immutable
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "roleEntities")
 public class Role extends ReferenceEntity {
 
     private static final long serialVersionUID = 1L;
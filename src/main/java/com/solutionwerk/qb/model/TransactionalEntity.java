@@ -1,12 +1,14 @@
 package com.solutionwerk.qb.model;
 
+import com.solutionwerk.qb.util.ReferenceIdGenerator;
 import com.solutionwerk.qb.util.RequestContext;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.joda.time.DateTime;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
-import java.util.UUID;
 
 /**
  * The parent class for all transactional persistent entities.
@@ -23,18 +25,28 @@ public class TransactionalEntity implements Serializable {
     private static final long serialVersionUID = 1L;
 
     /**
-     * The primary key identifier.
+     * The primary key identifier, assigned from a block of identifiers reserved
+     * by this node.
+     *
+     * @see PooledIdGenerator
      */
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "pooled")
+    @GenericGenerator(
+            name = "pooled",
+            strategy = "com.solutionwerk.qb.model.PooledIdGenerator",
+            parameters = @Parameter(name = PooledIdGenerator.BLOCK_SIZE, value = "50"))
     private Long id;
 
     /**
      * A secondary unique identifier which may be used as a reference to this
-     * entity by external systems.
+     * entity by external systems. Assigned on initial persistence unless
+     * supplied.
+     *
+     * @see ReferenceIdGenerator
      */
     @NotNull
-    private String referenceId = UUID.randomUUID().toString();
+    private String referenceId;
 
     /**
      * The entity instance version used for optimistic locking.
@@ -123,7 +135,8 @@ public class TransactionalEntity implements Serializable {
 
     /**
      * A listener method which is invoked on instances of TransactionalEntity
-     * (or their subclasses) prior to initial persistence. Sets the
+     * (or their subclasses) prior to initial persistence. Assigns a
+     * <code>referenceId</code> if none was supplied and sets the
      * <code>created</code> audit values for the entity. Attempts to obtain this
      * thread's instance of a username from the RequestContext. If none exists,
      * throws an IllegalArgumentException. The username is used to set the
@@ -141,6 +154,10 @@ public class TransactionalEntity implements Serializable {
         setCreatedBy(username);
 
         setCreatedAt(new DateTime());
+
+        if (referenceId == null) {
+            referenceId = ReferenceIdGenerator.next();
+        }
     }
 
     /**
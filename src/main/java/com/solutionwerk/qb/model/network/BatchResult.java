@@ -0,0 +1,83 @@
+package com.solutionwerk.qb.model.network;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+import javax.persistence.EntityExistsException;
+import javax.persistence.NoResultException;
+import javax.validation.ConstraintViolationException;
+
+/**
+ * The outcome of one item of a batch request. Results are returned in request
+ * order; <code>index</code> is the position of the item in the request array.
+ * <p/>
+ * A successful item carries the persisted entity and HTTP status 201. A failed
+ * item carries an HTTP status classifying the failure (400 invalid, 404 a
+ * referenced entity was not found, 409 conflicting with existing data, 500
+ * otherwise) and the exception class and message instead.
+ *
+ * @param <T> The entity type.
+ */
+public class BatchResult<T> {
+
+    private int index;
+    private int status;
+    private T entity;
+    private String exception;
+    private String message;
+
+    public static <T> BatchResult<T> created(int index, T entity) {
+        BatchResult<T> result = new BatchResult<>();
+        result.index = index;
+        result.status = HttpStatus.CREATED.value();
+        result.entity = entity;
+        return result;
+    }
+
+    public static <T> BatchResult<T> failed(int index, Exception exception) {
+        BatchResult<T> result = new BatchResult<>();
+        result.index = index;
+        result.status = statusOf(exception).value();
+        result.exception = exception.getClass().getName();
+        result.message = exception.getMessage();
+        return result;
+    }
+
+    private static HttpStatus statusOf(Exception exception) {
+        if (exception instanceof NoResultException) {
+            return HttpStatus.NOT_FOUND;
+        }
+        if (exception instanceof ConstraintViolationException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        if (exception instanceof EntityExistsException
+                || exception instanceof DataIntegrityViolationException) {
+            return HttpStatus.CONFLICT;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public T getEntity() {
+        return entity;
+    }
+
+    public String getException() {
+        return exception;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isSuccess() {
+        return entity != null;
+    }
+}
@@ -1,9 +1,17 @@
 package com.solutionwerk.qb.repository;
 
 import com.solutionwerk.qb.model.Account;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * The AccountRepository interface is a Spring Data JPA data repository for
  * Account entities. The AccountRepository provides all the data access
@@ -23,4 +31,77 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
      */
     Account findByUsername(String username);
 
+    /**
+     * Query for a single Account entity, with its roles and profile, by
+     * primary key identifier.
+     *
+     * @param id A Long primary key identifier.
+     * @return An Account or <code>null</code> if none found.
+     */
+    @EntityGraph(value = Account.FULL, type = EntityGraphType.FETCH)
+    Account findFullById(Long id);
+
+    /**
+     * Query for the Account entities, with their roles and profiles, with any
+     * of the supplied primary key identifiers in a single statement. The
+     * Account.FULL graph is spelled out as fetch joins because Hibernate
+     * cannot bind a collection parameter of a query with an entity graph.
+     *
+     * @param ids A Collection of Long primary key identifiers.
+     * @return A List of distinct Account objects, in no particular order.
+     */
+    @Query("SELECT DISTINCT a FROM Account a LEFT JOIN FETCH a.roles LEFT JOIN FETCH a.profile WHERE a.id IN :ids")
+    List<Account> findFullByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Query for all Account entities, with their roles and profiles, in a
+     * single statement.
+     *
+     * @return A List of distinct Account objects.
+     */
+    @Query("SELECT DISTINCT a FROM Account a LEFT JOIN FETCH a.roles LEFT JOIN FETCH a.profile")
+    List<Account> findAllFull();
+
+    /**
+     * Query for a single Account entity, with its roles and profile, by
+     * username.
+     *
+     * @param username A String username value to query the repository.
+     * @return An Account or <code>null</code> if none found.
+     */
+    @EntityGraph(value = Account.FULL, type = EntityGraphType.FETCH)
+    Account findFullByUsername(String username);
+
+    /**
+     * Query for a single Account entity, with its roles and profile, by
+     * reference identifier.
+     *
+     * @param referenceId A String reference identifier.
+     * @return An Account or <code>null</code> if none found.
+     */
+    @EntityGraph(value = Account.FULL, type = EntityGraphType.FETCH)
+    Account findFullByReferenceId(String referenceId);
+
+    /**
+     * Query for a single Account entity, with its roles but not its profile,
+     * by username.
+     *
+     * @param username A String username value to query the repository.
+     * @return An Account or <code>null</code> if none found.
+     */
+    @EntityGraph(value = Account.AUTH, type = EntityGraphType.FETCH)
+    Account findAuthByUsername(String username);
+
+    /**
+     * Query for the Account entities whose primary key identifier follows the
+     * supplied identifier, in identifier order. Seeking by identifier reads
+     * only the requested rows however deep into the table the page lies.
+     *
+     * @param id A Long primary key identifier; only greater identifiers are returned.
+     * @param pageable A Pageable limiting the number of entities returned.
+     * @return A List of Account objects.
+     */
+    @EntityGraph(value = Account.SUMMARY, type = EntityGraphType.FETCH)
+    List<Account> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
 }
@@ -1,10 +1,41 @@
 package com.solutionwerk.qb.repository;
 
 import com.solutionwerk.qb.model.Profile;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ProfileRepository extends JpaRepository<Profile, Long> {
 
+    /**
+     * Query for a single Profile entity by reference identifier.
+     *
+     * @param referenceId A String reference identifier.
+     * @return A Profile or <code>null</code> if none found.
+     */
+    Profile findByReferenceId(String referenceId);
+
+    /**
+     * Query for the Profile entities whose primary key identifier follows the
+     * supplied identifier, in identifier order.
+     *
+     * @param id A Long primary key identifier; only greater identifiers are returned.
+     * @param pageable A Pageable limiting the number of entities returned.
+     * @return A List of Profile objects.
+     */
+    List<Profile> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Query for the Profile entities with any of the supplied primary key
+     * identifiers in a single statement.
+     *
+     * @param ids A Collection of Long primary key identifiers.
+     * @return A List of Profile objects, in no particular order.
+     */
+    List<Profile> findByIdIn(Collection<Long> ids);
+
 }
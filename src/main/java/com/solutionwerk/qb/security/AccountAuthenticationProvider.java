@@ -44,6 +44,13 @@ public class AccountAuthenticationProvider extends AbstractUserDetailsAuthentica
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    /**
+     * Recently verified credentials. Present only when
+     * <code>qb.security.credential-cache.enabled=true</code>.
+     */
+    @Autowired(required = false)
+    private CredentialCache credentialCache;
+
     // TODO: Override and modify this method to customize token and validate the token later in interceptor.
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
@@ -60,10 +67,18 @@ public class AccountAuthenticationProvider extends AbstractUserDetailsAuthentica
             throw new BadCredentialsException("Credentials may not be null.");
         }
 
-        //TODO: Send Encrypted password and Match
-        if (!passwordEncoder.matches((String) token.getCredentials(), userDetails.getPassword())) {
-            LOGGER.error("Invalid credentials.");
-            throw new BadCredentialsException("Invalid credentials.");
+        String presentedPassword = token.getCredentials().toString();
+        if (credentialCache != null && credentialCache.isVerified(userDetails, presentedPassword)) {
+            LOGGER.debug("Credentials verified from cache.");
+        } else {
+            //TODO: Send Encrypted password and Match
+            if (!passwordEncoder.matches(presentedPassword, userDetails.getPassword())) {
+                LOGGER.error("Invalid credentials.");
+                throw new BadCredentialsException("Invalid credentials.");
+            }
+            if (credentialCache != null) {
+                credentialCache.verified(userDetails, presentedPassword);
+            }
         }
 
         RequestContext.setUsername(userDetails.getUsername());
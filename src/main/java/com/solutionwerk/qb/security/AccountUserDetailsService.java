@@ -38,7 +38,7 @@ public class AccountUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         LOGGER.debug("> loadUserByUsername {}", username);
 
-        Account account = accountService.findByUsername(username);
+        Account account = accountService.findForAuthentication(username);
         if (account == null) {
             // Not found...
             throw new UsernameNotFoundException("User " + username + " not found.");
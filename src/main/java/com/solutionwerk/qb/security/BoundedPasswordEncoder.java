@@ -0,0 +1,247 @@
+package com.solutionwerk.qb.security;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A PasswordEncoder which runs the hashing and matching of a delegate
+ * PasswordEncoder (typically BCrypt) on a dedicated, size-capped worker pool
+ * with a bounded queue. At most <code>poolSize</code> password operations
+ * consume CPU at any time, however many requests arrive.
+ * <p/>
+ * A request thread waits at most the timeout, which should be a few hundred
+ * milliseconds, for its operation. An operation is refused with a
+ * {@link PasswordCheckUnavailableException} before it is queued when the queue
+ * is full, or when the operations ahead of it, running or queued, at the
+ * average running time of recent operations, would not leave it time to
+ * complete within the timeout. Under a login burst, requests are therefore
+ * rejected at once rather than parking request threads behind the pool.
+ * <p/>
+ * BCrypt does not respond to interruption, so an operation whose request
+ * timed out while it was running keeps its worker until it completes, and its
+ * result is discarded; it still counts as running in the estimate above. An
+ * operation whose request timed out while it was queued is skipped.
+ * <p/>
+ * The following metrics are published through the actuator
+ * <code>/metrics</code> endpoint:
+ * <ul>
+ * <li>password.pool.active - The number of operations running
+ * <li>password.pool.queue.size - The number of operations waiting
+ * <li>password.pool.rejected - The number of operations rejected or timed out
+ * <li>password.pool.abandoned - The number of operations running after their
+ * request timed out
+ * <li>password.pool.wait.avg.millis - The average queue wait of started operations
+ * <li>password.pool.wait.max.millis - The longest queue wait of started operations
+ * </ul>
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, PublicMetrics, DisposableBean {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final int poolSize;
+
+    private final long timeoutMillis;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong abandoned = new AtomicLong();
+
+    private final AtomicLong started = new AtomicLong();
+
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * The moving average running time of operations; zero until one has run.
+     */
+    private final AtomicLong runNanos = new AtomicLong();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int poolSize, int queueCapacity, long timeoutMillis) {
+        this.delegate = delegate;
+        this.poolSize = poolSize;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("password-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    private <T> T execute(Callable<T> operation) {
+        if (!canCompleteInTime()) {
+            rejected.incrementAndGet();
+            LOGGER.warn("Password check rejected; {} operations queued.", executor.getQueue().size());
+            throw new PasswordCheckUnavailableException("Authentication is temporarily unavailable.");
+        }
+
+        Operation<T> task = new Operation<>(operation);
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            LOGGER.warn("Password check rejected; {} operations queued.", executor.getQueue().size());
+            throw new PasswordCheckUnavailableException("Authentication is temporarily unavailable.");
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            task.abandon();
+            rejected.incrementAndGet();
+            LOGGER.warn("Password check timed out after {} ms.", timeoutMillis);
+            throw new PasswordCheckUnavailableException("Authentication is temporarily unavailable.");
+        } catch (InterruptedException e) {
+            task.abandon();
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Interrupted during password check.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PasswordCheckUnavailableException) {
+                rejected.incrementAndGet();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new AuthenticationServiceException("Password check failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Estimates whether an operation queued now would complete within the
+     * timeout: each worker first runs its share of the running and queued
+     * operations, including those whose request has timed out.
+     */
+    private boolean canCompleteInTime() {
+        long run = runNanos.get();
+        if (run == 0) {
+            return true;
+        }
+        long ahead = executor.getActiveCount() + executor.getQueue().size();
+        return (ahead + poolSize) * run <= poolSize * TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    private void recordRun(long nanos) {
+        runNanos.accumulateAndGet(nanos, (average, sample) -> average == 0 ? sample : average + (sample - average) / 8);
+    }
+
+    private void recordWait(long waitNanos) {
+        started.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        long count = started.get();
+        metrics.add(new Metric<>("password.pool.active", executor.getActiveCount()));
+        metrics.add(new Metric<>("password.pool.queue.size", executor.getQueue().size()));
+        metrics.add(new Metric<>("password.pool.rejected", rejected.get()));
+        metrics.add(new Metric<>("password.pool.abandoned", abandoned.get()));
+        metrics.add(new Metric<>("password.pool.wait.avg.millis",
+                count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / count) : 0L));
+        metrics.add(new Metric<>("password.pool.wait.max.millis", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get())));
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A password operation, which is skipped if its request has timed out
+     * before it starts.
+     */
+    private class Operation<T> implements Callable<T> {
+
+        private static final int QUEUED = 0;
+
+        private static final int RUNNING = 1;
+
+        private static final int DONE = 2;
+
+        private static final int ABANDONED = 3;
+
+        private final Callable<T> operation;
+
+        private final long submitted = System.nanoTime();
+
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        Operation(Callable<T> operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public T call() throws Exception {
+            long started = System.nanoTime();
+            if (started - submitted >= TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+                    || !state.compareAndSet(QUEUED, RUNNING)) {
+                LOGGER.debug("Skipped password check; its request timed out.");
+                throw new PasswordCheckUnavailableException("Authentication is temporarily unavailable.");
+            }
+            recordWait(started - submitted);
+            try {
+                return operation.call();
+            } finally {
+                recordRun(System.nanoTime() - started);
+                if (!state.compareAndSet(RUNNING, DONE)) {
+                    abandoned.decrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Marks the operation as no longer awaited by its request.
+         */
+        void abandon() {
+            if (state.compareAndSet(QUEUED, ABANDONED)) {
+                return;
+            }
+            abandoned.incrementAndGet();
+            if (!state.compareAndSet(RUNNING, ABANDONED)) {
+                abandoned.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.solutionwerk.qb.security;
+
+import com.solutionwerk.qb.cache.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * A TokenStore which caches access tokens, and the OAuth2Authentication they
+ * were issued for, in front of a delegate TokenStore (typically a
+ * <code>JdbcTokenStore</code>). Validating a cached access token requires no
+ * round trip to the delegate.
+ * <p/>
+ * Writes go through to the delegate and update or evict the cache. Expired
+ * tokens are evicted when read. Tokens revoked directly in the delegate by
+ * another node remain valid here until the cache entry expires; the
+ * "accessTokens" cache expiry therefore bounds revocation latency.
+ * <p/>
+ * Concurrent misses of the same token share one read of the delegate when a
+ * SingleFlight is supplied.
+ */
+public class CachingTokenStore implements TokenStore {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    private final TokenStore delegate;
+
+    /**
+     * Access token value to CachedAccessToken.
+     */
+    private final Cache accessTokens;
+
+    /**
+     * Refresh token value to the value of the access token issued with it.
+     */
+    private final Cache refreshTokenIndex;
+
+    private final SingleFlight singleFlight;
+
+    public CachingTokenStore(TokenStore delegate, Cache accessTokens, Cache refreshTokenIndex) {
+        this(delegate, accessTokens, refreshTokenIndex, null);
+    }
+
+    public CachingTokenStore(TokenStore delegate, Cache accessTokens, Cache refreshTokenIndex,
+                             SingleFlight singleFlight) {
+        this.delegate = delegate;
+        this.accessTokens = accessTokens;
+        this.refreshTokenIndex = refreshTokenIndex;
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        CachedAccessToken cached = lookup(tokenValue);
+        return cached != null ? cached.accessToken : null;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+        return readAuthentication(token.getValue());
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        CachedAccessToken cached = lookup(token);
+        return cached != null ? cached.authentication : null;
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        delegate.storeAccessToken(token, authentication);
+        cache(token, authentication);
+    }
+
+    @Override
+    public void removeAccessToken(OAuth2AccessToken token) {
+        delegate.removeAccessToken(token);
+        evict(token);
+    }
+
+    @Override
+    public void removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+        delegate.removeAccessTokenUsingRefreshToken(refreshToken);
+        String accessTokenValue = refreshTokenIndex.get(refreshToken.getValue(), String.class);
+        if (accessTokenValue != null) {
+            accessTokens.evict(accessTokenValue);
+        }
+        refreshTokenIndex.evict(refreshToken.getValue());
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        delegate.storeRefreshToken(refreshToken, authentication);
+    }
+
+    @Override
+    public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+        return delegate.readRefreshToken(tokenValue);
+    }
+
+    @Override
+    public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+        return delegate.readAuthenticationForRefreshToken(token);
+    }
+
+    @Override
+    public void removeRefreshToken(OAuth2RefreshToken token) {
+        delegate.removeRefreshToken(token);
+    }
+
+    @Override
+    public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+        return delegate.getAccessToken(authentication);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+        return delegate.findTokensByClientIdAndUserName(clientId, userName);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+        return delegate.findTokensByClientId(clientId);
+    }
+
+    /**
+     * Evicts all cached access tokens.
+     */
+    public void evictCache() {
+        accessTokens.clear();
+        refreshTokenIndex.clear();
+    }
+
+    /**
+     * Returns the cached access token and authentication for the token value,
+     * loading them from the delegate on a miss.
+     *
+     * @param tokenValue A String access token value.
+     * @return A CachedAccessToken or <code>null</code> if the delegate holds
+     * no such token.
+     */
+    private CachedAccessToken lookup(String tokenValue) {
+        CachedAccessToken cached = accessTokens.get(tokenValue, CachedAccessToken.class);
+        if (cached != null) {
+            if (cached.accessToken.isExpired()) {
+                // Leave removal from the delegate to the token services
+                evict(cached.accessToken);
+            }
+            return cached;
+        }
+
+        if (singleFlight != null) {
+            return singleFlight.load("accessTokens", tokenValue, () -> load(tokenValue));
+        }
+        return load(tokenValue);
+    }
+
+    /**
+     * Reads the access token and authentication for the token value from the
+     * delegate and caches them.
+     *
+     * @param tokenValue A String access token value.
+     * @return A CachedAccessToken or <code>null</code> if the delegate holds
+     * no such token.
+     */
+    private CachedAccessToken load(String tokenValue) {
+        OAuth2AccessToken accessToken = delegate.readAccessToken(tokenValue);
+        if (accessToken == null) {
+            return null;
+        }
+        OAuth2Authentication authentication = delegate.readAuthentication(tokenValue);
+        if (authentication == null) {
+            LOGGER.warn("Access token found without an authentication; not cached.");
+            return new CachedAccessToken(accessToken, null);
+        }
+        return cache(accessToken, authentication);
+    }
+
+    private CachedAccessToken cache(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        CachedAccessToken cached = new CachedAccessToken(token, authentication);
+        if (!token.isExpired()) {
+            accessTokens.put(token.getValue(), cached);
+            if (token.getRefreshToken() != null) {
+                refreshTokenIndex.put(token.getRefreshToken().getValue(), token.getValue());
+            }
+        }
+        return cached;
+    }
+
+    private void evict(OAuth2AccessToken token) {
+        accessTokens.evict(token.getValue());
+        if (token.getRefreshToken() != null) {
+            refreshTokenIndex.evict(token.getRefreshToken().getValue());
+        }
+    }
+
+    /**
+     * An access token and the authentication it was issued for.
+     */
+    private static class CachedAccessToken implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final OAuth2AccessToken accessToken;
+
+        private final OAuth2Authentication authentication;
+
+        CachedAccessToken(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+            this.accessToken = accessToken;
+            this.authentication = authentication;
+        }
+    }
+}
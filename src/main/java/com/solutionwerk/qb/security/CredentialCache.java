@@ -0,0 +1,111 @@
+package com.solutionwerk.qb.security;
+
+import org.springframework.cache.Cache;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * A short-lived record of successful password checks, consulted before the
+ * PasswordEncoder so that repeated logins by the same user skip the BCrypt
+ * comparison.
+ * <p/>
+ * Entries are keyed by username and hold an HMAC of the presented password,
+ * computed with a random key which exists only in this process, together with
+ * the stored password hash it was verified against. A presented password
+ * therefore matches only if it is identical to the verified one and the
+ * stored hash has not changed since. Account lock, enabled and expiry flags
+ * are checked by the AuthenticationProvider before this cache is consulted.
+ */
+public class CredentialCache {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final Cache cache;
+
+    private final SecretKeySpec key;
+
+    public CredentialCache(Cache cache) {
+        this.cache = cache;
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+    }
+
+    /**
+     * Returns <code>true</code> if the presented password was recently
+     * verified against the current password hash of the UserDetails.
+     *
+     * @param userDetails The UserDetails being authenticated.
+     * @param presentedPassword The clear text password presented.
+     * @return A boolean.
+     */
+    public boolean isVerified(UserDetails userDetails, String presentedPassword) {
+        VerifiedCredential credential = cache.get(userDetails.getUsername(), VerifiedCredential.class);
+        return credential != null
+                && credential.passwordHash.equals(userDetails.getPassword())
+                && MessageDigest.isEqual(credential.digest, digest(presentedPassword));
+    }
+
+    /**
+     * Records that the presented password matched the password hash of the
+     * UserDetails.
+     *
+     * @param userDetails The authenticated UserDetails.
+     * @param presentedPassword The clear text password presented.
+     */
+    public void verified(UserDetails userDetails, String presentedPassword) {
+        cache.put(userDetails.getUsername(),
+                new VerifiedCredential(userDetails.getPassword(), digest(presentedPassword)));
+    }
+
+    /**
+     * Forgets any verified password of the username.
+     *
+     * @param username A String username.
+     */
+    public void evict(String username) {
+        cache.evict(username);
+    }
+
+    /**
+     * Forgets all verified passwords.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    private byte[] digest(String password) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to compute credential digest.", e);
+        }
+    }
+
+    /**
+     * A verified password digest and the password hash it was verified
+     * against.
+     */
+    private static class VerifiedCredential implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String passwordHash;
+
+        private final byte[] digest;
+
+        VerifiedCredential(String passwordHash, byte[] digest) {
+            this.passwordHash = passwordHash;
+            this.digest = digest;
+        }
+    }
+}
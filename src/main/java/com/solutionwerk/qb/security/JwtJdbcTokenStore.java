@@ -0,0 +1,47 @@
+package com.solutionwerk.qb.security;
+
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+/**
+ * A TokenStore for self-contained access tokens. Access tokens are signed JWTs
+ * carrying the username and authorities; they are never persisted and are
+ * verified using only the locally held key of the JwtAccessTokenConverter.
+ * <p/>
+ * Refresh tokens are persisted in a delegate TokenStore (typically a
+ * <code>JdbcTokenStore</code>) so that they remain revocable. Because a
+ * refresh token is re-signed whenever a new access token is issued, the token
+ * services must not reuse refresh tokens.
+ */
+public class JwtJdbcTokenStore extends JwtTokenStore {
+
+    private final TokenStore refreshTokenStore;
+
+    public JwtJdbcTokenStore(JwtAccessTokenConverter jwtTokenEnhancer, TokenStore refreshTokenStore) {
+        super(jwtTokenEnhancer);
+        this.refreshTokenStore = refreshTokenStore;
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        refreshTokenStore.storeRefreshToken(refreshToken, authentication);
+    }
+
+    @Override
+    public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+        return refreshTokenStore.readRefreshToken(tokenValue);
+    }
+
+    @Override
+    public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+        return refreshTokenStore.readAuthenticationForRefreshToken(token);
+    }
+
+    @Override
+    public void removeRefreshToken(OAuth2RefreshToken token) {
+        refreshTokenStore.removeRefreshToken(token);
+    }
+}
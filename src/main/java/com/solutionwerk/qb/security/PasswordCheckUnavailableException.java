@@ -0,0 +1,29 @@
+package com.solutionwerk.qb.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+
+/**
+ * Thrown when a password check cannot be admitted to, or does not complete
+ * within, the bounded password worker pool. The token endpoint renders it as
+ * a <code>503 temporarily_unavailable</code> OAuth2 error so that clients
+ * back off instead of queuing on request threads.
+ */
+public class PasswordCheckUnavailableException extends OAuth2Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public PasswordCheckUnavailableException(String msg) {
+        super(msg);
+    }
+
+    @Override
+    public String getOAuth2ErrorCode() {
+        return "temporarily_unavailable";
+    }
+
+    @Override
+    public int getHttpErrorCode() {
+        return HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+}
@@ -0,0 +1,210 @@
+package com.solutionwerk.qb.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Deletes expired and orphaned tokens from the tables of the JdbcTokenStore,
+ * which never removes a token unless it is used after its expiry. A token is
+ * orphaned when it can no longer be deserialized or, for an access token,
+ * when its user has no Account.
+ * <p/>
+ * The expiry of a token is held only within its serialized form, so each
+ * table is read in batches of <code>qb.oauth2.purge.batch-size</code> rows,
+ * ordered by token_id, and the expired tokens of a batch are deleted by
+ * token_id before the next batch is read. No transaction spans more than one
+ * batch and no lock is held between batches.
+ * <p/>
+ * The following metrics are published:
+ * <ul>
+ * <li>oauth2.tokens.{access,refresh}.rows - The rows retained by the last purge
+ * <li>oauth2.tokens.{access,refresh}.purged - The rows deleted since the
+ * application started
+ * <li>oauth2.tokens.purge.last.{purged,millis} - The rows deleted by, and the
+ * duration of, the last purge
+ * </ul>
+ */
+@Component
+public class TokenPurger implements PublicMetrics {
+
+    private static final String ACCESS_TOKEN_TABLE = "oauth_access_token";
+
+    private static final String REFRESH_TOKEN_TABLE = "oauth_refresh_token";
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${qb.oauth2.purge.batch-size:500}")
+    private int batchSize;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicLong accessRows = new AtomicLong();
+
+    private final AtomicLong refreshRows = new AtomicLong();
+
+    private final AtomicLong accessPurged = new AtomicLong();
+
+    private final AtomicLong refreshPurged = new AtomicLong();
+
+    private final AtomicLong lastPurged = new AtomicLong();
+
+    private final AtomicLong lastMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setMaxRows(batchSize);
+    }
+
+    /**
+     * Deletes the expired and orphaned access and refresh tokens.
+     */
+    @Scheduled(
+            initialDelayString = "${qb.oauth2.purge.interval:3600000}",
+            fixedDelayString = "${qb.oauth2.purge.interval:3600000}")
+    public synchronized void purge() {
+        LOGGER.debug("> purge");
+        long start = System.currentTimeMillis();
+        Date now = new Date(start);
+
+        int orphaned = purgeOrphanedAccessTokens();
+        int access = purgeExpired(ACCESS_TOKEN_TABLE, accessRows,
+                token -> ((OAuth2AccessToken) token).getExpiration() != null
+                        && ((OAuth2AccessToken) token).getExpiration().before(now));
+        int refresh = purgeExpired(REFRESH_TOKEN_TABLE, refreshRows,
+                token -> token instanceof ExpiringOAuth2RefreshToken
+                        && ((ExpiringOAuth2RefreshToken) token).getExpiration() != null
+                        && ((ExpiringOAuth2RefreshToken) token).getExpiration().before(now));
+
+        accessPurged.addAndGet(orphaned + access);
+        refreshPurged.addAndGet(refresh);
+        lastPurged.set(orphaned + access + refresh);
+        lastMillis.set(System.currentTimeMillis() - start);
+
+        LOGGER.debug("< purge access:{} orphaned:{} refresh:{}", access, orphaned, refresh);
+    }
+
+    /**
+     * Deletes the access tokens of users which have no Account, e.g. after the
+     * Account was deleted.
+     */
+    private int purgeOrphanedAccessTokens() {
+        int purged = 0;
+        List<String> tokenIds;
+        int deleted;
+        do {
+            tokenIds = jdbcTemplate.queryForList("SELECT t.token_id FROM " + ACCESS_TOKEN_TABLE + " t"
+                    + " WHERE t.user_name IS NOT NULL"
+                    + " AND NOT EXISTS (SELECT 1 FROM Account a WHERE a.username = t.user_name)", String.class);
+            deleted = delete(ACCESS_TOKEN_TABLE, tokenIds);
+            purged += deleted;
+        } while (tokenIds.size() == batchSize && deleted > 0);
+        return purged;
+    }
+
+    /**
+     * Reads the tokens of a table in batches ordered by token_id and deletes
+     * those which are expired or cannot be deserialized.
+     *
+     * @param table   The token table.
+     * @param rows    Receives the number of rows retained.
+     * @param expired Tests a deserialized token.
+     * @return The number of tokens deleted.
+     */
+    private int purgeExpired(String table, AtomicLong rows, Predicate<Object> expired) {
+        int purged = 0;
+        int retained = 0;
+        String after = "";
+        List<Object[]> batch;
+        do {
+            batch = jdbcTemplate.query("SELECT token_id, token FROM " + table
+                            + " WHERE token_id > ? ORDER BY token_id",
+                    (rs, rowNum) -> new Object[]{rs.getString(1), rs.getBytes(2)}, after);
+
+            List<String> tokenIds = new ArrayList<>();
+            for (Object[] row : batch) {
+                String tokenId = (String) row[0];
+                if (isExpired((byte[]) row[1], tokenId, expired)) {
+                    tokenIds.add(tokenId);
+                } else {
+                    retained++;
+                }
+                after = tokenId;
+            }
+            purged += delete(table, tokenIds);
+        } while (batch.size() == batchSize);
+
+        rows.set(retained);
+        return purged;
+    }
+
+    private boolean isExpired(byte[] serialized, String tokenId, Predicate<Object> expired) {
+        if (serialized == null) {
+            return true;
+        }
+        Object token;
+        try {
+            token = SerializationUtils.deserialize(serialized);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Purging token {} which cannot be deserialized.", tokenId);
+            return true;
+        }
+        return !(token instanceof OAuth2AccessToken || token instanceof OAuth2RefreshToken)
+                || expired.test(token);
+    }
+
+    private int delete(String table, List<String> tokenIds) {
+        if (tokenIds.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> args = new ArrayList<>(tokenIds.size());
+        for (String tokenId : tokenIds) {
+            args.add(new Object[]{tokenId});
+        }
+        int deleted = 0;
+        for (int count : jdbcTemplate.batchUpdate("DELETE FROM " + table + " WHERE token_id = ?", args)) {
+            // A driver may not report the count of each statement of a batch
+            deleted += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return deleted;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("oauth2.tokens.access.rows", accessRows.get()));
+        metrics.add(new Metric<>("oauth2.tokens.refresh.rows", refreshRows.get()));
+        metrics.add(new Metric<>("oauth2.tokens.access.purged", accessPurged.get()));
+        metrics.add(new Metric<>("oauth2.tokens.refresh.purged", refreshPurged.get()));
+        metrics.add(new Metric<>("oauth2.tokens.purge.last.purged", lastPurged.get()));
+        metrics.add(new Metric<>("oauth2.tokens.purge.last.millis", lastMillis.get()));
+        return metrics;
+    }
+}
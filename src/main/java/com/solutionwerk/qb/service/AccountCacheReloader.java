@@ -0,0 +1,27 @@
+package com.solutionwerk.qb.service;
+
+import com.solutionwerk.qb.cache.CacheReloader;
+import com.solutionwerk.qb.repository.AccountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reloads entries of the "accounts" cache, which are keyed by the Account
+ * primary key identifier.
+ */
+@Component
+public class AccountCacheReloader implements CacheReloader {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Override
+    public String getCacheName() {
+        return "accounts";
+    }
+
+    @Override
+    public Object reload(Object key) {
+        return accountRepository.findFullById((Long) key);
+    }
+}
@@ -2,9 +2,16 @@ package com.solutionwerk.qb.service;
 
 
 import com.solutionwerk.qb.model.Account;
+import com.solutionwerk.qb.model.network.BatchResult;
 import com.solutionwerk.qb.model.network.User;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * The AccountService interface defines all public business behaviors for
@@ -19,7 +26,8 @@ import java.util.Collection;
 public interface AccountService {
 
     /**
-     * Find an Account by the username attribute value.
+     * Find an Account by the username attribute value. The Account is served
+     * from the same cache entry as {@link #findOne(Long)}.
      *
      * @param username A String username to query the repository.
      * @return An Account instance or <code>null</code> if none found.
@@ -27,12 +35,72 @@ public interface AccountService {
     Account findByUsername(String username);
 
     /**
-     * Find all Account entities.
+     * Find an Account by the reference identifier used by external systems.
+     *
+     * @param referenceId A String reference identifier to query the repository.
+     * @return An Account instance or <code>null</code> if none found.
+     */
+    Account findByReferenceId(String referenceId);
+
+    /**
+     * Find an Account, with its roles, by the username attribute value for
+     * authentication. A cached Account is returned when present; otherwise
+     * only the Account and its roles are read, and the result is not cached.
+     *
+     * @param username A String username to query the repository.
+     * @return An Account instance or <code>null</code> if none found.
+     */
+    Account findForAuthentication(String username);
+
+    /**
+     * Find all Account entities, with their roles and profiles.
      *
      * @return A Collection of Account objects.
      */
     Collection<Account> findAll();
 
+    /**
+     * Find one page of Account entities.
+     *
+     * @param pageable A Pageable describing the page number, size and sort.
+     * @return A Page of Account objects.
+     */
+    Page<Account> findAll(Pageable pageable);
+
+    /**
+     * Find up to <code>size</code> Account entities whose primary key
+     * identifier is greater than <code>afterId</code>, in identifier order.
+     * The identifier of the last entity returned is the <code>afterId</code>
+     * of the next page.
+     *
+     * @param afterId A Long primary key identifier, or 0 for the first page.
+     * @param size The maximum number of entities to return.
+     * @return A List of Account objects.
+     */
+    List<Account> findAllAfter(Long afterId, int size);
+
+    /**
+     * Passes every Account entity to the consumer in identifier order. Entities
+     * are read in batches and detached after each batch, so memory use does
+     * not grow with the number of entities.
+     *
+     * @param batchSize The number of entities read per query.
+     * @param consumer A Consumer receiving each Account.
+     */
+    void findAll(int batchSize, Consumer<Account> consumer);
+
+    /**
+     * Find the Account entities with the supplied primary key identifiers. The
+     * entities are served from the same cache entries as
+     * {@link #findOne(Long)}; those not cached are read by a single query and
+     * added to the cache.
+     *
+     * @param ids A Collection of Long primary key identifiers.
+     * @return A Collection of Account objects in the order of the identifiers.
+     * Identifiers without an entity are omitted.
+     */
+    Collection<Account> findAll(Collection<Long> ids);
+
     /**
      * Find a single Account entity by primary key identifier.
      *
@@ -53,16 +121,40 @@ public interface AccountService {
      * Updates a previously persisted Account entity in the data store.
      *
      * @param account A Account object to be updated.
+     * @param version The version the entity is expected to have, or
+     *                <code>null</code> if any version may be updated.
      * @return The updated Account entity.
+     * @throws PreconditionFailedException Thrown if the entity does not have
+     *                                     the expected version.
      */
-    Account update(Account account);
+    Account update(Account account, Integer version);
+
+    /**
+     * Updates only the supplied attributes of a previously persisted Account
+     * entity in the data store. The username and the enabled, expired,
+     * credentialsExpired and locked flags may be patched; attributes absent
+     * from the patch are left unchanged.
+     *
+     * @param id      A Long primary key identifier.
+     * @param patch   A Map of attribute names to new values.
+     * @param version The version the entity is expected to have, or
+     *                <code>null</code> if any version may be updated.
+     * @return The updated Account entity.
+     * @throws PreconditionFailedException Thrown if the entity does not have
+     *                                     the expected version.
+     */
+    Account patch(Long id, Map<String, Object> patch, Integer version);
 
     /**
      * Removes a previously persisted Account entity from the data store.
      *
-     * @param id A Long primary key identifier.
+     * @param id      A Long primary key identifier.
+     * @param version The version the entity is expected to have, or
+     *                <code>null</code> if any version may be removed.
+     * @throws PreconditionFailedException Thrown if the entity does not have
+     *                                     the expected version.
      */
-    void delete(Long id);
+    void delete(Long id, Integer version);
 
     /**
      * Persists a Account, Profile entity in the data store.
@@ -72,16 +164,32 @@ public interface AccountService {
      */
     Account create(User user);
 
+    /**
+     * Persists each of a List of Users, with their Account, Role and Profile
+     * entity objects, in the data store. The Users are persisted in chunks, one
+     * transaction per chunk; a User which cannot be persisted does not prevent
+     * the others from being persisted.
+     *
+     * @param users A List of User objects to be persisted.
+     * @return A List of BatchResult, one per User, in request order.
+     */
+    List<BatchResult<Account>> createAll(List<User> users);
+
     /**
      * Updates a previously persisted Account, Profile entity in the data store.
      *
-     * @param user A User object with Account, Role and Profile entity objects to be updated.
+     * @param user    A User object with Account, Role and Profile entity objects to be updated.
+     * @param version The version the entity is expected to have, or
+     *                <code>null</code> if any version may be updated.
      * @return The updated Account entity.
+     * @throws PreconditionFailedException Thrown if the entity does not have
+     *                                     the expected version.
      */
-    Account update(User user);
+    Account update(User user, Integer version);
 
     /**
-     * Evicts all members of the "profiles" cache.
+     * Evicts all members of the "accounts", "accountUsernames",
+     * "accountReferences" and "credentials" caches.
      */
     void evictCache();
 
@@ -1,35 +1,56 @@
 package com.solutionwerk.qb.service;
 
+import com.solutionwerk.qb.cache.Caches;
+import com.solutionwerk.qb.cache.SingleFlight;
 import com.solutionwerk.qb.model.Account;
 import com.solutionwerk.qb.model.Profile;
 import com.solutionwerk.qb.model.Role;
+import com.solutionwerk.qb.model.network.BatchResult;
 import com.solutionwerk.qb.model.network.User;
 import com.solutionwerk.qb.repository.AccountRepository;
 import com.solutionwerk.qb.repository.ProfileRepository;
 import com.solutionwerk.qb.repository.RoleRepository;
+import com.solutionwerk.qb.security.CredentialCache;
+import com.solutionwerk.qb.util.PropertyPatcher;
 import com.solutionwerk.qb.util.RequestContext;
 import com.solutionwerk.qb.util.Util;
+import org.hibernate.Hibernate;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityExistsException;
+import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
+import javax.persistence.PersistenceContext;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * The AccountServiceBean encapsulates all business behaviors for operations on
  * the Account entity model and some related entities such as Role.
+ * <p/>
+ * Accounts are cached once, keyed by primary key identifier, in the
+ * "accounts" cache. The "accountUsernames" cache is a secondary index mapping
+ * each username to the identifier of its Account. Both caches are maintained
+ * together by every mutating operation. The "accountReferences" cache maps
+ * reference identifiers, which never change, to Account identifiers.
  *
  * @author Piyush Ramavat
  */
@@ -42,31 +63,139 @@ public class AccountServiceBean implements AccountService {
      */
     private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
 
+    /**
+     * The Account attributes which may be patched.
+     */
+    private static final PropertyPatcher<Account> PATCHER = PropertyPatcher.<Account>builder()
+            .property("username", String.class, Account::setUsername, false)
+            .property("enabled", Boolean.class, Account::setEnabled, false)
+            .property("credentialsExpired", Boolean.class, Account::setCredentialsExpired, false)
+            .property("expired", Boolean.class, Account::setExpired, false)
+            .property("locked", Boolean.class, Account::setLocked, false)
+            .build();
+
     /**
      * The Spring Data repository for Account entities.
      */
     @Autowired
     private AccountRepository accountRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private RoleService roleService;
+
     @Autowired
     private ProfileRepository profileRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private BatchExecutor batchExecutor;
+
+    /**
+     * Recently verified credentials. Present only when
+     * <code>qb.security.credential-cache.enabled=true</code>.
+     */
+    @Autowired(required = false)
+    private CredentialCache credentialCache;
+
     @Override
     public Collection<Account> findAll() {
-        LOGGER.info("findAll");
-        return accountRepository.findAll();
+        LOGGER.debug("findAll");
+        return accountRepository.findAllFull();
+    }
+
+    @Override
+    public Page<Account> findAll(Pageable pageable) {
+        LOGGER.debug("findAll page:{} size:{}", pageable.getPageNumber(), pageable.getPageSize());
+        return accountRepository.findAll(pageable);
+    }
+
+    @Override
+    public List<Account> findAllAfter(Long afterId, int size) {
+        LOGGER.debug("findAllAfter afterId:{} size:{}", afterId, size);
+        return accountRepository.findByIdGreaterThanOrderByIdAsc(afterId, new PageRequest(0, size));
+    }
+
+    @Override
+    @Transactional(
+            propagation = Propagation.REQUIRED,
+            readOnly = true)
+    public void findAll(int batchSize, Consumer<Account> consumer) {
+        LOGGER.debug("findAll batchSize:{}", batchSize);
+
+        Long afterId = 0L;
+        List<Account> batch;
+        do {
+            batch = accountRepository.findByIdGreaterThanOrderByIdAsc(afterId, new PageRequest(0, batchSize));
+            for (Account account : batch) {
+                consumer.accept(account);
+                afterId = account.getId();
+            }
+            // Detach the batch so that it may be garbage collected
+            entityManager.clear();
+        } while (batch.size() == batchSize);
     }
 
     @Override
-    @Cacheable(
-            value = "accounts",
-            key = "#username")
     public Account findByUsername(String username) {
-        LOGGER.info("findByUsername");
-        return accountRepository.findByUsername(username);
+        LOGGER.debug("findByUsername");
+
+        // Resolve through the username index to the canonical cached Account.
+        // The username check guards against an index entry which is briefly
+        // ahead of, or behind, the Account entry during a rename.
+        Long id = getUsernameIndex().get(username, Long.class);
+        if (id != null) {
+            Account account = getAccounts().get(id, Account.class);
+            if (account != null && username.equals(account.getUsername())) {
+                return account;
+            }
+        }
+
+        Account account = singleFlight.load("accountUsernames", username,
+                () -> accountRepository.findFullByUsername(username));
+        if (account != null) {
+            getAccounts().put(account.getId(), account);
+            getUsernameIndex().put(username, account.getId());
+        }
+        return account;
+    }
+
+    @Override
+    public Account findByReferenceId(String referenceId) {
+        LOGGER.debug("findByReferenceId");
+
+        Long id = getReferenceIndex().get(referenceId, Long.class);
+        if (id != null) {
+            Account account = getAccounts().get(id, Account.class);
+            if (account != null && referenceId.equals(account.getReferenceId())) {
+                return account;
+            }
+        }
+
+        Account account = singleFlight.load("accountReferences", referenceId,
+                () -> accountRepository.findFullByReferenceId(referenceId));
+        if (account != null) {
+            getAccounts().put(account.getId(), account);
+            getReferenceIndex().put(referenceId, account.getId());
+        }
+        return account;
+    }
+
+    @Override
+    public Collection<Account> findAll(Collection<Long> ids) {
+        LOGGER.debug("findAll ids:{}", ids.size());
+        return Caches.getAll(getAccounts(), new LinkedHashSet<>(ids), Account.class,
+                accountRepository::findFullByIdIn, Account::getId).values();
     }
 
     @Override
@@ -74,8 +203,25 @@ public class AccountServiceBean implements AccountService {
             value = "accounts",
             key = "#id")
     public Account findOne(Long id) {
-        LOGGER.info("findOne id:{}", id);
-        return accountRepository.findOne(id);
+        LOGGER.debug("findOne id:{}", id);
+        return singleFlight.load("accounts", id, () -> accountRepository.findFullById(id));
+    }
+
+    @Override
+    public Account findForAuthentication(String username) {
+        LOGGER.debug("findForAuthentication");
+
+        Long id = getUsernameIndex().get(username, Long.class);
+        if (id != null) {
+            Account account = getAccounts().get(id, Account.class);
+            if (account != null && username.equals(account.getUsername())) {
+                return account;
+            }
+        }
+
+        // Not cached; the profile is not needed to authenticate
+        return singleFlight.load("accountAuthentications", username,
+                () -> accountRepository.findAuthByUsername(username));
     }
 
     @Override
@@ -86,7 +232,7 @@ public class AccountServiceBean implements AccountService {
             value = "accounts",
             key = "#result.id")
     public Account create(Account account) {
-        LOGGER.info("create");
+        LOGGER.debug("create");
 
         // Ensure the entity object to be created does NOT exist in the
         // repository. Prevent the default behavior of save() which will update
@@ -97,18 +243,21 @@ public class AccountServiceBean implements AccountService {
             throw new EntityExistsException("The id attribute must be null to persist a new entity.");
         }
 
-        return accountRepository.save(account);
+        Account savedAccount = accountRepository.save(account);
+        getUsernameIndex().put(savedAccount.getUsername(), savedAccount.getId());
+        return savedAccount;
     }
 
     @Override
+    @RetryOnConflict
     @Transactional(
             propagation = Propagation.REQUIRED,
             readOnly = false)
     @CachePut(
             value = "accounts",
             key = "#result.id")
-    public Account update(Account account) {
-        LOGGER.info("update id:{}", account.getId());
+    public Account update(Account account, Integer version) {
+        LOGGER.debug("update id:{}", account.getId());
 
         // Ensure the entity object to be updated exists in the repository to
         // prevent the default behavior of save() which will persist a new
@@ -119,28 +268,83 @@ public class AccountServiceBean implements AccountService {
             LOGGER.error("Attempted to update a Account, but the entity does not exist.");
             throw new NoResultException("Requested entity not found.");
         }
+        checkVersion(accountToUpdate, version);
 
         // TODO: Try to save Account passed in parameter directly. keep the check and ensure other dependent entities like Role and Profiles are intact or updated according to new one.
+        String previousUsername = accountToUpdate.getUsername();
         accountToUpdate.setUsername(account.getUsername());
-        return accountRepository.save(accountToUpdate);
+        Account updatedAccount = accountRepository.save(accountToUpdate);
+
+        if (!previousUsername.equals(updatedAccount.getUsername())) {
+            getUsernameIndex().evict(previousUsername);
+        }
+        evictCredentials(previousUsername);
+        getUsernameIndex().put(updatedAccount.getUsername(), updatedAccount.getId());
+        return updatedAccount;
+    }
+
+    @Override
+    @RetryOnConflict
+    @Transactional(
+            propagation = Propagation.REQUIRED,
+            readOnly = false)
+    @CachePut(
+            value = "accounts",
+            key = "#id")
+    public Account patch(Long id, Map<String, Object> patch, Integer version) {
+        LOGGER.debug("patch id:{}", id);
+
+        Account accountToUpdate = accountRepository.findFullById(id);
+        if (accountToUpdate == null) {
+            // Cannot update Account that hasn't been persisted
+            LOGGER.error("Attempted to patch an Account, but the entity does not exist.");
+            throw new NoResultException("Requested entity not found.");
+        }
+        checkVersion(accountToUpdate, version);
+
+        // Roles and Profile are left untouched. Flush so that the returned
+        // Account carries its new version; only the changed columns are
+        // written.
+        String previousUsername = accountToUpdate.getUsername();
+        PATCHER.apply(patch, accountToUpdate);
+        Account updatedAccount = accountRepository.saveAndFlush(accountToUpdate);
+
+        if (!previousUsername.equals(updatedAccount.getUsername())) {
+            getUsernameIndex().evict(previousUsername);
+        }
+        evictCredentials(previousUsername);
+        getUsernameIndex().put(updatedAccount.getUsername(), updatedAccount.getId());
+        return updatedAccount;
     }
 
     @Override
+    @RetryOnConflict
     @Transactional(
             propagation = Propagation.REQUIRED,
             readOnly = false)
     @CacheEvict(
             value = "accounts",
             key = "#id")
-    public void delete(Long id) {
-        LOGGER.info("delete id:{}", id);
+    public void delete(Long id, Integer version) {
+        LOGGER.debug("delete id:{}", id);
 
-        if (RequestContext.getUsername() != null && RequestContext.getUsername().equals(accountRepository.findOne(id).getUsername())) {
+        Account account = accountRepository.findOne(id);
+        if (account == null) {
+            // Cannot delete Account that hasn't been persisted
+            LOGGER.error("Attempted to delete an Account, but the entity does not exist.");
+            throw new NoResultException("Requested entity not found.");
+        }
+        checkVersion(account, version);
+
+        if (RequestContext.getUsername() != null && RequestContext.getUsername().equals(account.getUsername())) {
             LOGGER.error("Attempted to Delete an Account through which user has logged in.");
             throw new UnsupportedOperationException("Cannot Delete Logged in User");
         }
 
         accountRepository.delete(id);
+        getUsernameIndex().evict(account.getUsername());
+        getReferenceIndex().evict(account.getReferenceId());
+        evictCredentials(account.getUsername());
     }
 
     @Override
@@ -151,7 +355,7 @@ public class AccountServiceBean implements AccountService {
             value = "accounts",
             key = "#result.id")
     public Account create(User user) {
-        LOGGER.info("create");
+        LOGGER.debug("create");
 
         // Ensure the entity object to be created does NOT exist in the
         // repository. Prevent the default behavior of save() which will update
@@ -162,18 +366,58 @@ public class AccountServiceBean implements AccountService {
             throw new EntityExistsException("The id attribute must be null to persist a new entity.");
         }
 
-        Account account = accountRepository.saveAndFlush(user.getAccount());
+        Account account = accountRepository.save(user.getAccount());
 
         account = updateUserRoleAndProfile(user, account);
 
+        getUsernameIndex().put(account.getUsername(), account.getId());
         return account;
     }
 
+    @Override
+    public List<BatchResult<Account>> createAll(List<User> users) {
+        LOGGER.debug("createAll size:{}", users.size());
+
+        // Created Accounts are not cached; they are loaded on first use
+        return batchExecutor.execute(users, user -> {
+            if (user.getAccount().getId() != null) {
+                throw new EntityExistsException("The id attribute must be null to persist a new entity.");
+            }
+            // Persist copies; should the chunk roll back, the request objects
+            // are retried unchanged
+            User newUser = new User();
+            newUser.setAccount(new Account());
+            Util.copyProperties(user.getAccount(), newUser.getAccount(), false);
+            newUser.setRoles(user.getRoles());
+            if (user.getProfile() != null) {
+                newUser.setProfile(new Profile());
+                Util.copyProperties(user.getProfile(), newUser.getProfile(), false);
+            }
+
+            Account account = accountRepository.save(newUser.getAccount());
+            account = updateUserRoleAndProfile(newUser, account);
+            // The Account is detached once its chunk is flushed
+            if (account.getRoles() != null) {
+                account.getRoles().forEach(Hibernate::initialize);
+            }
+            return account;
+        });
+    }
+
     private Account updateUserRoleAndProfile(User user, Account account) {
         boolean update = false;
         if (user.getRoles() != null) {
+            DateTime now = new DateTime();
             List<Role> userRoles = new ArrayList<>(user.getRoles().size());
-            userRoles.addAll(user.getRoles().stream().map(role -> roleRepository.findByCodeAndEffective(role.getCode(), new DateTime())).collect(Collectors.toList()));
+            for (Role role : user.getRoles()) {
+                Role effectiveRole = roleService.findByCodeAndEffective(role.getCode(), now);
+                if (effectiveRole == null) {
+                    LOGGER.error("Attempted to assign a Role, but no effective Role exists for code {}.", role.getCode());
+                    throw new NoResultException("Requested entity not found.");
+                }
+                // Reference the Role by id; the registry instance is not managed by this persistence context
+                userRoles.add(roleRepository.getOne(effectiveRole.getId()));
+            }
             account.setRoles(userRoles);
             update = true;
         }
@@ -202,14 +446,15 @@ public class AccountServiceBean implements AccountService {
     }
 
     @Override
+    @RetryOnConflict
     @Transactional(
             propagation = Propagation.REQUIRED,
             readOnly = false)
     @CachePut(
             value = "accounts",
             key = "#result.id")
-    public Account update(User user) {
-        LOGGER.info("update id:{}", user.getAccount().getId());
+    public Account update(User user, Integer version) {
+        LOGGER.debug("update id:{}", user.getAccount().getId());
 
         // Ensure the entity object to be updated exists in the repository to
         // prevent the default behavior of save() which will persist a new
@@ -220,6 +465,7 @@ public class AccountServiceBean implements AccountService {
             LOGGER.error("Attempted to update a Account, but the entity does not exist.");
             throw new NoResultException("Requested entity not found.");
         }
+        checkVersion(accountToUpdate, version);
 
         accountToUpdate = updateUserRoleAndProfile(user, accountToUpdate);
 
@@ -228,9 +474,65 @@ public class AccountServiceBean implements AccountService {
 
     @Override
     @CacheEvict(
-            value = "accounts",
+            value = {"accounts", "accountUsernames", "accountReferences"},
             allEntries = true)
     public void evictCache() {
-        LOGGER.info("evictCache");
+        LOGGER.debug("evictCache");
+        if (credentialCache != null) {
+            credentialCache.clear();
+        }
+    }
+
+    /**
+     * Ensures that an Account read for modification still has the version the
+     * request expects.
+     *
+     * @param account The managed Account.
+     * @param version The expected version, or <code>null</code> if any.
+     */
+    private void checkVersion(Account account, Integer version) {
+        if (version != null && !version.equals(account.getVersion())) {
+            LOGGER.debug("Account id:{} has version:{}; expected:{}", account.getId(), account.getVersion(), version);
+            throw new PreconditionFailedException("The entity has been modified.");
+        }
+    }
+
+    /**
+     * The cache of Account entities keyed by primary key identifier.
+     *
+     * @return The "accounts" Cache.
+     */
+    private Cache getAccounts() {
+        return cacheManager.getCache("accounts");
+    }
+
+    /**
+     * The secondary index of Account identifiers keyed by username.
+     *
+     * @return The "accountUsernames" Cache.
+     */
+    private Cache getUsernameIndex() {
+        return cacheManager.getCache("accountUsernames");
+    }
+
+    /**
+     * The secondary index of Account identifiers keyed by reference identifier.
+     *
+     * @return The "accountReferences" Cache.
+     */
+    private Cache getReferenceIndex() {
+        return cacheManager.getCache("accountReferences");
+    }
+
+    /**
+     * Forgets any verified password of the username, so that the next login
+     * is checked against the current password hash.
+     *
+     * @param username A String username.
+     */
+    private void evictCredentials(String username) {
+        if (credentialCache != null) {
+            credentialCache.evict(username);
+        }
     }
 }
@@ -0,0 +1,114 @@
+package com.solutionwerk.qb.service;
+
+import com.solutionwerk.qb.model.network.BatchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Persists the items of a batch request in chunks, one transaction per chunk.
+ * Each chunk is flushed once, so Hibernate can group its inserts into JDBC
+ * batches (see <code>hibernate.jdbc.batch_size</code>), and then detached, so
+ * memory use does not grow with the size of the request.
+ * <p/>
+ * If any item of a chunk fails, the chunk is rolled back and its items are
+ * persisted again one transaction each. Only the failing items are reported
+ * as failed; the rest of the batch is unaffected. Chunk transactions are
+ * always new transactions, independent of any transaction of the caller.
+ */
+@Component
+public class BatchExecutor {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+
+    @Autowired
+    public BatchExecutor(PlatformTransactionManager transactionManager,
+                         @Value("${qb.batch.chunk-size:50}") int chunkSize) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Persists every item with the supplied function and reports the outcome
+     * of each.
+     *
+     * @param items   The List of items to be persisted.
+     * @param persist A Function persisting one item and returning the entity.
+     * @param <I>     The request item type.
+     * @param <T>     The entity type.
+     * @return A List of BatchResult, one per item, in request order.
+     */
+    public <I, T> List<BatchResult<T>> execute(List<I> items, Function<I, T> persist) {
+        List<BatchResult<T>> results = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, items.size());
+            try {
+                results.addAll(executeChunk(items, from, to, persist));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Batch chunk [{}, {}) failed; persisting its items individually. {}", from, to, e.getMessage());
+                for (int index = from; index < to; index++) {
+                    results.add(executeItem(items, index, persist));
+                }
+            }
+        }
+        return results;
+    }
+
+    private <I, T> List<BatchResult<T>> executeChunk(List<I> items, int from, int to, Function<I, T> persist) {
+        return transactionTemplate.execute(status -> {
+            List<BatchResult<T>> chunk = new ArrayList<>(to - from);
+            for (int index = from; index < to; index++) {
+                chunk.add(BatchResult.created(index, persist.apply(items.get(index))));
+            }
+            flushAndClear();
+            return chunk;
+        });
+    }
+
+    private <I, T> BatchResult<T> executeItem(List<I> items, int index, Function<I, T> persist) {
+        try {
+            return transactionTemplate.execute(status -> {
+                T entity = persist.apply(items.get(index));
+                flushAndClear();
+                return BatchResult.created(index, entity);
+            });
+        } catch (RuntimeException e) {
+            return BatchResult.failed(index, e);
+        }
+    }
+
+    private void flushAndClear() {
+        try {
+            entityManager.flush();
+        } catch (PersistenceException e) {
+            DataAccessException translated = EntityManagerFactoryUtils.convertJpaAccessExceptionIfPossible(e);
+            throw translated != null ? translated : e;
+        }
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,97 @@
+package com.solutionwerk.qb.service;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.OptimisticLockException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Invokes a {@link RetryOnConflict} service method again when it fails on an
+ * optimistic locking conflict, i.e. another transaction updated the same
+ * entity version first. The aspect is ordered before the transaction advice,
+ * so every attempt runs in a new transaction and re-reads the entity.
+ * <p/>
+ * A method is attempted up to <code>qb.retry.max-attempts</code> times.
+ * Before each retry the caller sleeps for a random time of up to
+ * <code>qb.retry.backoff</code> milliseconds, doubled for each retry and
+ * bounded by <code>qb.retry.max-backoff</code>, so that conflicting callers
+ * spread out. A method invoked within a transaction of its caller is not
+ * retried, since that transaction is already marked for rollback.
+ * <p/>
+ * The following metrics are published:
+ * <ul>
+ * <li>service.conflicts.retried - The attempts which were retried
+ * <li>service.conflicts.failed - The invocations which still conflicted after
+ * the last attempt
+ * </ul>
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConflictRetryAspect implements PublicMetrics {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    @Value("${qb.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${qb.retry.backoff:20}")
+    private long backoff;
+
+    @Value("${qb.retry.max-backoff:500}")
+    private long maxBackoff;
+
+    private final AtomicLong retried = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    @Around("@annotation(com.solutionwerk.qb.service.RetryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    failed.incrementAndGet();
+                    throw e;
+                }
+                retried.incrementAndGet();
+                long delay = ThreadLocalRandom.current().nextLong(
+                        Math.min(maxBackoff, backoff << Math.min(attempt - 1, 20)) + 1);
+                LOGGER.debug("Conflict in {} on attempt {}; retrying in {} ms.",
+                        joinPoint.getSignature().toShortString(), attempt, delay);
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("service.conflicts.retried", retried.get()));
+        metrics.add(new Metric<>("service.conflicts.failed", failed.get()));
+        return metrics;
+    }
+}
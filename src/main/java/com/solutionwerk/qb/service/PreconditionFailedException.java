@@ -0,0 +1,16 @@
+package com.solutionwerk.qb.service;
+
+/**
+ * Thrown when an entity to be modified no longer has the version which the
+ * request expects, typically the version named by its If-Match header. The
+ * entity was modified after the request read it; unlike an optimistic locking
+ * conflict, retrying the modification cannot succeed.
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,27 @@
+package com.solutionwerk.qb.service;
+
+import com.solutionwerk.qb.cache.CacheReloader;
+import com.solutionwerk.qb.repository.ProfileRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reloads entries of the "profiles" cache, which are keyed by the Profile
+ * primary key identifier.
+ */
+@Component
+public class ProfileCacheReloader implements CacheReloader {
+
+    @Autowired
+    private ProfileRepository profileRepository;
+
+    @Override
+    public String getCacheName() {
+        return "profiles";
+    }
+
+    @Override
+    public Object reload(Object key) {
+        return profileRepository.findOne((Long) key);
+    }
+}
@@ -1,8 +1,15 @@
 package com.solutionwerk.qb.service;
 
 import com.solutionwerk.qb.model.Profile;
+import com.solutionwerk.qb.model.network.BatchResult;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * The ProfileService interface defines all public business behaviors for
@@ -22,6 +29,48 @@ public interface ProfileService {
      */
     Collection<Profile> findAll();
 
+    /**
+     * Find one page of Profile entities.
+     *
+     * @param pageable A Pageable describing the page number, size and sort.
+     * @return A Page of Profile objects.
+     */
+    Page<Profile> findAll(Pageable pageable);
+
+    /**
+     * Find up to <code>size</code> Profile entities whose primary key
+     * identifier is greater than <code>afterId</code>, in identifier order.
+     * The identifier of the last entity returned is the <code>afterId</code>
+     * of the next page.
+     *
+     * @param afterId A Long primary key identifier, or 0 for the first page.
+     * @param size The maximum number of entities to return.
+     * @return A List of Profile objects.
+     */
+    List<Profile> findAllAfter(Long afterId, int size);
+
+    /**
+     * Passes every Profile entity to the consumer in identifier order. Entities
+     * are read in batches and detached after each batch, so memory use does
+     * not grow with the number of entities.
+     *
+     * @param batchSize The number of entities read per query.
+     * @param consumer A Consumer receiving each Profile.
+     */
+    void findAll(int batchSize, Consumer<Profile> consumer);
+
+    /**
+     * Find the Profile entities with the supplied primary key identifiers. The
+     * entities are served from the same cache entries as
+     * {@link #findOne(Long)}; those not cached are read by a single query and
+     * added to the cache.
+     *
+     * @param ids A Collection of Long primary key identifiers.
+     * @return A Collection of Profile objects in the order of the identifiers.
+     * Identifiers without an entity are omitted.
+     */
+    Collection<Profile> findAll(Collection<Long> ids);
+
     /**
      * Find a single Profile entity by primary key identifier.
      *
@@ -30,6 +79,15 @@ public interface ProfileService {
      */
     Profile findOne(Long id);
 
+    /**
+     * Find a single Profile entity by the reference identifier used by
+     * external systems.
+     *
+     * @param referenceId A String reference identifier.
+     * @return A Profile or <code>null</code> if none found.
+     */
+    Profile findByReferenceId(String referenceId);
+
     /**
      * Persists a Profile entity in the data store.
      *
@@ -38,23 +96,57 @@ public interface ProfileService {
      */
     Profile create(Profile profile);
 
+    /**
+     * Persists each of a List of Profile entities in the data store. The
+     * Profiles are persisted in chunks, one transaction per chunk; a Profile
+     * which cannot be persisted does not prevent the others from being
+     * persisted.
+     *
+     * @param profiles A List of Profile objects to be persisted.
+     * @return A List of BatchResult, one per Profile, in request order.
+     */
+    List<BatchResult<Profile>> createAll(List<Profile> profiles);
+
     /**
      * Updates a previously persisted Profile entity in the data store.
      *
      * @param profile A Profile object to be updated.
+     * @param version The version the entity is expected to have, or
+     *                <code>null</code> if any version may be updated.
+     * @return The updated Profile entity.
+     * @throws PreconditionFailedException Thrown if the entity does not have
+     *                                     the expected version.
+     */
+    Profile update(Profile profile, Integer version);
+
+    /**
+     * Updates only the supplied attributes of a previously persisted Profile
+     * entity in the data store. Attributes absent from the patch are left
+     * unchanged.
+     *
+     * @param id      A Long primary key identifier.
+     * @param patch   A Map of attribute names to new values.
+     * @param version The version the entity is expected to have, or
+     *                <code>null</code> if any version may be updated.
      * @return The updated Profile entity.
+     * @throws PreconditionFailedException Thrown if the entity does not have
+     *                                     the expected version.
      */
-    Profile update(Profile profile);
+    Profile patch(Long id, Map<String, Object> patch, Integer version);
 
     /**
      * Removes a previously persisted Profile entity from the data store.
      *
-     * @param id A Long primary key identifier.
+     * @param id      A Long primary key identifier.
+     * @param version The version the entity is expected to have, or
+     *                <code>null</code> if any version may be removed.
+     * @throws PreconditionFailedException Thrown if the entity does not have
+     *                                     the expected version.
      */
-    void delete(Long id);
+    void delete(Long id, Integer version);
 
     /**
-     * Evicts all members of the "profiles" cache.
+     * Evicts all members of the "profiles" and "profileReferences" caches.
      */
     void evictCache();
 
@@ -1,20 +1,36 @@
 package com.solutionwerk.qb.service;
 
+import com.solutionwerk.qb.cache.Caches;
+import com.solutionwerk.qb.cache.SingleFlight;
 import com.solutionwerk.qb.model.Profile;
+import com.solutionwerk.qb.model.network.BatchResult;
 import com.solutionwerk.qb.repository.ProfileRepository;
+import com.solutionwerk.qb.util.PropertyPatcher;
+import com.solutionwerk.qb.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityExistsException;
+import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
+import javax.persistence.PersistenceContext;
 import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * The ProfileServiceBean encapsulates all business behaviors operating on the
@@ -28,19 +44,93 @@ public class ProfileServiceBean implements ProfileService {
 
     private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
 
+    /**
+     * The Profile attributes which may be patched.
+     */
+    private static final PropertyPatcher<Profile> PATCHER = PropertyPatcher.<Profile>builder()
+            .property("name", String.class, Profile::setName, false)
+            .property("email", String.class, Profile::setEmail, true)
+            .property("mobile", String.class, Profile::setMobile, true)
+            .build();
+
     /**
      * The Spring Data repository for Profile entities.
      */
     @Autowired
     private ProfileRepository profileRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private BatchExecutor batchExecutor;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
     @Override
     public Collection<Profile> findAll() {
-        LOGGER.info("> findAll");
+        LOGGER.debug("> findAll");
 
         Collection<Profile> profiles = profileRepository.findAll();
 
-        LOGGER.info("< findAll");
+        LOGGER.debug("< findAll");
+        return profiles;
+    }
+
+    @Override
+    public Page<Profile> findAll(Pageable pageable) {
+        LOGGER.debug("> findAll page:{} size:{}", pageable.getPageNumber(), pageable.getPageSize());
+
+        Page<Profile> profiles = profileRepository.findAll(pageable);
+
+        LOGGER.debug("< findAll page:{} size:{}", pageable.getPageNumber(), pageable.getPageSize());
+        return profiles;
+    }
+
+    @Override
+    public List<Profile> findAllAfter(Long afterId, int size) {
+        LOGGER.debug("> findAllAfter afterId:{} size:{}", afterId, size);
+
+        List<Profile> profiles = profileRepository.findByIdGreaterThanOrderByIdAsc(afterId, new PageRequest(0, size));
+
+        LOGGER.debug("< findAllAfter afterId:{} size:{}", afterId, size);
+        return profiles;
+    }
+
+    @Override
+    @Transactional(
+            propagation = Propagation.REQUIRED,
+            readOnly = true)
+    public void findAll(int batchSize, Consumer<Profile> consumer) {
+        LOGGER.debug("> findAll batchSize:{}", batchSize);
+
+        Long afterId = 0L;
+        List<Profile> batch;
+        do {
+            batch = profileRepository.findByIdGreaterThanOrderByIdAsc(afterId, new PageRequest(0, batchSize));
+            for (Profile profile : batch) {
+                consumer.accept(profile);
+                afterId = profile.getId();
+            }
+            // Detach the batch so that it may be garbage collected
+            entityManager.clear();
+        } while (batch.size() == batchSize);
+
+        LOGGER.debug("< findAll batchSize:{}", batchSize);
+    }
+
+    @Override
+    public Collection<Profile> findAll(Collection<Long> ids) {
+        LOGGER.debug("> findAll ids:{}", ids.size());
+
+        Collection<Profile> profiles = Caches.getAll(getProfiles(), new LinkedHashSet<>(ids), Profile.class,
+                profileRepository::findByIdIn, Profile::getId).values();
+
+        LOGGER.debug("< findAll ids:{}", ids.size());
         return profiles;
     }
 
@@ -49,11 +139,36 @@ public class ProfileServiceBean implements ProfileService {
             value = "profiles",
             key = "#id")
     public Profile findOne(Long id) {
-        LOGGER.info("> findOne id:{}", id);
+        LOGGER.debug("> findOne id:{}", id);
+
+        Profile profile = singleFlight.load("profiles", id, () -> profileRepository.findOne(id));
+
+        LOGGER.debug("< findOne id:{}", id);
+        return profile;
+    }
+
+    @Override
+    public Profile findByReferenceId(String referenceId) {
+        LOGGER.debug("> findByReferenceId");
 
-        Profile profile = profileRepository.findOne(id);
+        // Resolve through the reference index to the cached Profile. The
+        // reference check guards against an index entry which is out of step
+        // with the Profile entry, as in AccountServiceBean.
+        Long id = getReferenceIndex().get(referenceId, Long.class);
+        Profile profile = id != null ? getProfiles().get(id, Profile.class) : null;
+        if (profile != null && !referenceId.equals(profile.getReferenceId())) {
+            profile = null;
+        }
+        if (profile == null) {
+            profile = singleFlight.load("profileReferences", referenceId,
+                    () -> profileRepository.findByReferenceId(referenceId));
+            if (profile != null) {
+                getProfiles().put(profile.getId(), profile);
+                getReferenceIndex().put(referenceId, profile.getId());
+            }
+        }
 
-        LOGGER.info("< findOne id:{}", id);
+        LOGGER.debug("< findByReferenceId");
         return profile;
     }
 
@@ -65,7 +180,7 @@ public class ProfileServiceBean implements ProfileService {
             value = "profiles",
             key = "#result.id")
     public Profile create(Profile profile) {
-        LOGGER.info("> create");
+        LOGGER.debug("> create");
 
         // Ensure the entity object to be created does NOT exist in the
         // repository. Prevent the default behavior of save() which will update
@@ -78,19 +193,39 @@ public class ProfileServiceBean implements ProfileService {
 
         Profile savedProfile = profileRepository.save(profile);
 
-        LOGGER.info("< create");
+        LOGGER.debug("< create");
         return savedProfile;
     }
 
     @Override
+    public List<BatchResult<Profile>> createAll(List<Profile> profiles) {
+        LOGGER.debug("> createAll size:{}", profiles.size());
+
+        List<BatchResult<Profile>> results = batchExecutor.execute(profiles, profile -> {
+            if (profile.getId() != null) {
+                throw new EntityExistsException("The id attribute must be null to persist a new entity.");
+            }
+            // Persist a copy; should the chunk roll back, the request object
+            // is retried unchanged
+            Profile newProfile = new Profile();
+            Util.copyProperties(profile, newProfile, false);
+            return profileRepository.save(newProfile);
+        });
+
+        LOGGER.debug("< createAll size:{}", profiles.size());
+        return results;
+    }
+
+    @Override
+    @RetryOnConflict
     @Transactional(
             propagation = Propagation.REQUIRED,
             readOnly = false)
     @CachePut(
             value = "profiles",
             key = "#profile.id")
-    public Profile update(Profile profile) {
-        LOGGER.info("> update id:{}", profile.getId());
+    public Profile update(Profile profile, Integer version) {
+        LOGGER.debug("> update id:{}", profile.getId());
 
         // Ensure the entity object to be updated exists in the repository to
         // prevent the default behavior of save() which will persist a new
@@ -101,36 +236,109 @@ public class ProfileServiceBean implements ProfileService {
             LOGGER.error("Attempted to update a Profile, but the entity does not exist.");
             throw new NoResultException("Requested entity not found.");
         }
+        checkVersion(profileToUpdate, version);
 
-        // TODO: try to save object in argument directly. Verify whether all updated info is changed and null values are not replaced in DB
+        // Replace the attributes of the managed entity; only the changed
+        // columns are written
         profileToUpdate.setName(profile.getName());
+        profileToUpdate.setEmail(profile.getEmail());
+        profileToUpdate.setMobile(profile.getMobile());
         Profile updatedProfile = profileRepository.save(profileToUpdate);
 
-        LOGGER.info("< update id:{}", profile.getId());
+        LOGGER.debug("< update id:{}", profile.getId());
+        return updatedProfile;
+    }
+
+    @Override
+    @RetryOnConflict
+    @Transactional(
+            propagation = Propagation.REQUIRED,
+            readOnly = false)
+    @CachePut(
+            value = "profiles",
+            key = "#id")
+    public Profile patch(Long id, Map<String, Object> patch, Integer version) {
+        LOGGER.debug("> patch id:{}", id);
+
+        Profile profileToUpdate = profileRepository.findOne(id);
+        if (profileToUpdate == null) {
+            // Cannot update Profile that hasn't been persisted
+            LOGGER.error("Attempted to patch a Profile, but the entity does not exist.");
+            throw new NoResultException("Requested entity not found.");
+        }
+        checkVersion(profileToUpdate, version);
+
+        // Flush so that the returned Profile carries its new version. Only the
+        // changed columns are written.
+        PATCHER.apply(patch, profileToUpdate);
+        Profile updatedProfile = profileRepository.saveAndFlush(profileToUpdate);
+
+        LOGGER.debug("< patch id:{}", id);
         return updatedProfile;
     }
 
     @Override
+    @RetryOnConflict
     @Transactional(
             propagation = Propagation.REQUIRED,
             readOnly = false)
     @CacheEvict(
             value = "profiles",
             key = "#id")
-    public void delete(Long id) {
-        LOGGER.info("> delete id:{}", id);
+    public void delete(Long id, Integer version) {
+        LOGGER.debug("> delete id:{}", id);
 
+        if (version != null) {
+            Profile profileToDelete = profileRepository.findOne(id);
+            if (profileToDelete == null) {
+                LOGGER.error("Attempted to delete a Profile, but the entity does not exist.");
+                throw new NoResultException("Requested entity not found.");
+            }
+            checkVersion(profileToDelete, version);
+        }
         profileRepository.delete(id);
 
-        LOGGER.info("< delete id:{}", id);
+        LOGGER.debug("< delete id:{}", id);
     }
 
     @Override
     @CacheEvict(
-            value = "profiles",
+            value = {"profiles", "profileReferences"},
             allEntries = true)
     public void evictCache() {
-        LOGGER.info("> evictCache");
-        LOGGER.info("< evictCache");
+        LOGGER.debug("> evictCache");
+        LOGGER.debug("< evictCache");
+    }
+
+    /**
+     * Ensures that a Profile read for modification still has the version the
+     * request expects.
+     *
+     * @param profile The managed Profile.
+     * @param version The expected version, or <code>null</code> if any.
+     */
+    private void checkVersion(Profile profile, Integer version) {
+        if (version != null && !version.equals(profile.getVersion())) {
+            LOGGER.debug("Profile id:{} has version:{}; expected:{}", profile.getId(), profile.getVersion(), version);
+            throw new PreconditionFailedException("The entity has been modified.");
+        }
+    }
+
+    /**
+     * The cache of Profile entities keyed by primary key identifier.
+     *
+     * @return The "profiles" Cache.
+     */
+    private Cache getProfiles() {
+        return cacheManager.getCache("profiles");
+    }
+
+    /**
+     * The secondary index of Profile identifiers keyed by reference identifier.
+     *
+     * @return The "profileReferences" Cache.
+     */
+    private Cache getReferenceIndex() {
+        return cacheManager.getCache("profileReferences");
     }
 }
@@ -0,0 +1,23 @@
+package com.solutionwerk.qb.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a mutating service method which is invoked again, in a new
+ * transaction, when it fails on an optimistic locking conflict. The method
+ * must re-read the entities it changes, so that each attempt applies the
+ * change to their latest version.
+ * <p/>
+ * The number of attempts and the backoff between them are configured by the
+ * <code>qb.retry.*</code> properties; see {@link ConflictRetryAspect}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RetryOnConflict {
+
+}
@@ -0,0 +1,41 @@
+package com.solutionwerk.qb.service;
+
+import com.solutionwerk.qb.model.Role;
+import org.joda.time.DateTime;
+
+import java.util.Collection;
+
+/**
+ * The RoleService interface defines all public business behaviors for
+ * operations on the Role reference entity model.
+ * <p/>
+ * This interface should be injected into RoleService clients, not the
+ * implementation bean.
+ */
+public interface RoleService {
+
+    /**
+     * Find all Role entities effective at the supplied timestamp, ordered by
+     * the ordinal attribute.
+     *
+     * @param effectiveAt A DateTime at which the Roles must be effective.
+     * @return A Collection of Role objects.
+     */
+    Collection<Role> findAllEffective(DateTime effectiveAt);
+
+    /**
+     * Find a single Role entity by code which is effective at the supplied
+     * timestamp.
+     *
+     * @param code        A String Role code.
+     * @param effectiveAt A DateTime at which the Role must be effective.
+     * @return A Role or <code>null</code> if none found.
+     */
+    Role findByCodeAndEffective(String code, DateTime effectiveAt);
+
+    /**
+     * Reloads all Role entities from the data store.
+     */
+    void refresh();
+
+}
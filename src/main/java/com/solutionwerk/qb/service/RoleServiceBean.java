@@ -0,0 +1,107 @@
+package com.solutionwerk.qb.service;
+
+import com.solutionwerk.qb.model.Role;
+import com.solutionwerk.qb.repository.RoleRepository;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The RoleServiceBean serves Role reference data from an immutable in-memory
+ * snapshot. The snapshot is loaded at startup and reloaded on the schedule
+ * set by the <code>qb.roles.refresh-interval</code> property (milliseconds).
+ * Lookups never touch the data store.
+ */
+@Service
+public class RoleServiceBean implements RoleService {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * The Spring Data repository for Role entities.
+     */
+    @Autowired
+    private RoleRepository roleRepository;
+
+    /**
+     * The current snapshot. Replaced as a whole on each refresh.
+     */
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+
+    @Override
+    @PostConstruct
+    @Scheduled(
+            initialDelayString = "${qb.roles.refresh-interval:300000}",
+            fixedDelayString = "${qb.roles.refresh-interval:300000}")
+    public void refresh() {
+        LOGGER.debug("> refresh");
+
+        List<Role> roles = roleRepository.findAll(new Sort(Sort.Direction.ASC, "ordinal"));
+        snapshot = new Snapshot(roles);
+
+        LOGGER.debug("< refresh roles:{}", roles.size());
+    }
+
+    @Override
+    public Collection<Role> findAllEffective(DateTime effectiveAt) {
+        List<Role> effective = new ArrayList<>();
+        for (Role role : snapshot.roles) {
+            if (isEffective(role, effectiveAt)) {
+                effective.add(role);
+            }
+        }
+        return effective;
+    }
+
+    @Override
+    public Role findByCodeAndEffective(String code, DateTime effectiveAt) {
+        List<Role> roles = snapshot.rolesByCode.get(code);
+        if (roles != null) {
+            for (Role role : roles) {
+                if (isEffective(role, effectiveAt)) {
+                    return role;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isEffective(Role role, DateTime effectiveAt) {
+        return !role.getEffectiveAt().isAfter(effectiveAt)
+                && (role.getExpiresAt() == null || role.getExpiresAt().isAfter(effectiveAt));
+    }
+
+    /**
+     * An immutable view of all Roles, ordered by ordinal and indexed by code.
+     */
+    private static class Snapshot {
+
+        private final List<Role> roles;
+
+        private final Map<String, List<Role>> rolesByCode;
+
+        Snapshot(List<Role> roles) {
+            Map<String, List<Role>> byCode = new HashMap<>();
+            for (Role role : roles) {
+                byCode.computeIfAbsent(role.getCode(), code -> new ArrayList<>(1)).add(role);
+            }
+            this.roles = Collections.unmodifiableList(new ArrayList<>(roles));
+            this.rolesByCode = Collections.unmodifiableMap(byCode);
+        }
+    }
+}
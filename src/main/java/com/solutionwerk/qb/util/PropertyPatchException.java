@@ -0,0 +1,16 @@
+package com.solutionwerk.qb.util;
+
+/**
+ * Thrown when a patch document names a property which cannot be patched or
+ * supplies a value of the wrong type.
+ *
+ * @see PropertyPatcher
+ */
+public class PropertyPatchException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PropertyPatchException(String message) {
+        super(message);
+    }
+}
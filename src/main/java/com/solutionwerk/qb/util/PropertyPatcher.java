@@ -0,0 +1,123 @@
+package com.solutionwerk.qb.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Applies a sparse document of property values, such as the body of a PATCH
+ * request, to an object. Only the properties present in the document are set;
+ * a property present with a <code>null</code> value is cleared.
+ * <p/>
+ * The patchable properties and their setters are declared once per type, so
+ * applying a patch involves no reflection. Properties which are not declared,
+ * e.g. identifiers and audit values, cannot be patched.
+ *
+ * @param <T> The patched type.
+ */
+public final class PropertyPatcher<T> {
+
+    private final Map<String, Property<T, ?>> properties;
+
+    private PropertyPatcher(Map<String, Property<T, ?>> properties) {
+        this.properties = Collections.unmodifiableMap(new HashMap<>(properties));
+    }
+
+    /**
+     * Creates a Builder declaring the patchable properties of a type.
+     *
+     * @param <T> The patched type.
+     * @return A Builder.
+     */
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Sets each property of the patch on the target. The patch is validated
+     * completely before the target is modified.
+     *
+     * @param patch  A Map of property names to values.
+     * @param target The object to be patched.
+     * @throws PropertyPatchException if a property is not patchable or its
+     *                                value is not of the property type.
+     */
+    public void apply(Map<String, Object> patch, T target) {
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            property(entry.getKey()).validate(entry.getValue());
+        }
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            property(entry.getKey()).set(target, entry.getValue());
+        }
+    }
+
+    private Property<T, ?> property(String name) {
+        Property<T, ?> property = properties.get(name);
+        if (property == null) {
+            throw new PropertyPatchException("The property '" + name + "' cannot be patched.");
+        }
+        return property;
+    }
+
+    /**
+     * Declares the patchable properties of a type.
+     *
+     * @param <T> The patched type.
+     */
+    public static final class Builder<T> {
+
+        private final Map<String, Property<T, ?>> properties = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Declares a patchable property.
+         *
+         * @param name     The property name.
+         * @param type     The property type.
+         * @param setter   The property setter.
+         * @param nullable Whether the property may be cleared.
+         * @param <V>      The property type.
+         * @return This Builder.
+         */
+        public <V> Builder<T> property(String name, Class<V> type, BiConsumer<T, V> setter, boolean nullable) {
+            properties.put(name, new Property<>(name, type, setter, nullable));
+            return this;
+        }
+
+        public PropertyPatcher<T> build() {
+            return new PropertyPatcher<>(properties);
+        }
+    }
+
+    private static final class Property<T, V> {
+
+        private final String name;
+
+        private final Class<V> type;
+
+        private final BiConsumer<T, V> setter;
+
+        private final boolean nullable;
+
+        Property(String name, Class<V> type, BiConsumer<T, V> setter, boolean nullable) {
+            this.name = name;
+            this.type = type;
+            this.setter = setter;
+            this.nullable = nullable;
+        }
+
+        void validate(Object value) {
+            if (value == null ? !nullable : !type.isInstance(value)) {
+                throw new PropertyPatchException("The property '" + name + "' requires a "
+                        + (nullable ? "" : "non-null ") + type.getSimpleName() + " value.");
+            }
+        }
+
+        void set(T target, Object value) {
+            setter.accept(target, type.cast(value));
+        }
+    }
+}
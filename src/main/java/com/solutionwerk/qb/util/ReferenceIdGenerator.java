@@ -0,0 +1,53 @@
+package com.solutionwerk.qb.util;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered, UUID formatted reference identifiers. The first 48
+ * bits hold the Unix time in milliseconds and the next 12 bits a counter, so
+ * identifiers generated by one node sort in the order they were generated;
+ * identifiers of different nodes sort by time. The remaining 62 random bits
+ * are chosen once per node and keep the nodes apart.
+ * <p/>
+ * Values follow the layout of a version 7 UUID. Generating one takes a single
+ * compare-and-set; no random numbers are drawn per identifier. Should more
+ * than 4096 identifiers be requested within a millisecond, the timestamp runs
+ * ahead of the clock until the clock catches up.
+ */
+public final class ReferenceIdGenerator {
+
+    private static final long VERSION = 0x7000L;
+
+    private static final long VARIANT = 0x8000000000000000L;
+
+    private static final long NODE = new SecureRandom().nextLong() & 0x3FFFFFFFFFFFFFFFL | VARIANT;
+
+    /**
+     * The timestamp and counter of the last identifier, as
+     * <code>millis << 12 | counter</code>.
+     */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private ReferenceIdGenerator() {
+    }
+
+    /**
+     * Returns a new reference identifier.
+     *
+     * @return A String in the canonical 36 character UUID format.
+     */
+    public static String next() {
+        long candidate = System.currentTimeMillis() << 12;
+        long last;
+        long next;
+        do {
+            last = LAST.get();
+            next = Math.max(candidate, last + 1);
+        } while (!LAST.compareAndSet(last, next));
+
+        long mostSignificantBits = (next >>> 12) << 16 | VERSION | next & 0xFFFL;
+        return new UUID(mostSignificantBits, NODE).toString();
+    }
+}
@@ -23,6 +23,19 @@ public class RequestContext {
      */
     private static ThreadLocal<String> userName = new ThreadLocal<>();
 
+    /**
+     * ThreadLocal storage of the flag set once the request has written to the
+     * primary database.
+     */
+    private static ThreadLocal<Boolean> written = new ThreadLocal<>();
+
+    /**
+     * ThreadLocal storage of the flag set once the RequestContext has been
+     * initialized for a request. Threads which never serve a request, such as
+     * scheduler threads, are never initialized.
+     */
+    private static ThreadLocal<Boolean> initialized = new ThreadLocal<>();
+
     private RequestContext() {
 
     }
@@ -46,11 +59,48 @@ public class RequestContext {
         LOGGER.debug("RequestContext added userName {} to current thread", userName);
     }
 
+    /**
+     * Whether the current thread has written to the primary database since
+     * the RequestContext was initialized.
+     *
+     * @return <code>true</code> if a write has been made.
+     */
+    public static boolean hasWritten() {
+        return written.get() != null;
+    }
+
+    /**
+     * Records that the current thread has written to the primary database.
+     * Reads for the rest of the request are served by the primary.
+     */
+    public static void markWritten() {
+        written.set(Boolean.TRUE);
+    }
+
+    /**
+     * Forgets that the current thread has written to the primary database.
+     */
+    public static void clearWritten() {
+        written.remove();
+    }
+
+    /**
+     * Whether the RequestContext has been initialized for a request on the
+     * current thread.
+     *
+     * @return <code>true</code> if the current thread serves requests.
+     */
+    public static boolean isInitialized() {
+        return initialized.get() != null;
+    }
+
     /**
      * Initialize the ThreadLocal attributes for the current thread.
      */
     public static void init() {
         userName.set(null);
+        written.remove();
+        initialized.set(Boolean.TRUE);
     }
 
 }
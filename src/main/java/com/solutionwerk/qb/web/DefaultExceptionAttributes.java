@@ -1,11 +1,14 @@
 package com.solutionwerk.qb.web;
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import org.springframework.boot.autoconfigure.web.DefaultErrorAttributes;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.context.request.RequestAttributes;
 
 import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -27,6 +30,10 @@ import java.util.Map;
  * <li>message - The Exception message
  * <li>path - The HTTP request servlet path when the exception was thrown
  * </ul>
+ * <p/>
+ * The class is stateless and may be shared. Its JSON rendering appends the
+ * values to fragments serialized once per HttpStatus and Exception class
+ * rather than building and serializing a Map.
  *
  * @author Piyush Ramavat
  * @see ExceptionAttributes
@@ -58,6 +65,37 @@ public class DefaultExceptionAttributes implements ExceptionAttributes {
      */
     public static final String PATH = "path";
 
+    /**
+     * The serialized status and error attributes, and the exception attribute
+     * key, of each HttpStatus.
+     */
+    private static final Map<HttpStatus, String> STATUS_FRAGMENTS = new EnumMap<>(HttpStatus.class);
+
+    static {
+        for (HttpStatus httpStatus : HttpStatus.values()) {
+            StringBuilder fragment = new StringBuilder();
+            fragment.append(",\"").append(STATUS).append("\":").append(httpStatus.value());
+            fragment.append(",\"").append(ERROR).append("\":");
+            appendQuoted(fragment, httpStatus.getReasonPhrase());
+            fragment.append(",\"").append(EXCEPTION).append("\":");
+            STATUS_FRAGMENTS.put(httpStatus, fragment.toString());
+        }
+    }
+
+    /**
+     * The serialized exception attribute value, and the message attribute
+     * key, of each Exception class.
+     */
+    private static final ClassValue<String> EXCEPTION_FRAGMENTS = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            StringBuilder fragment = new StringBuilder();
+            appendQuoted(fragment, type.getName());
+            fragment.append(",\"").append(MESSAGE).append("\":");
+            return fragment.toString();
+        }
+    };
+
     @Override
     public Map<String, Object> getExceptionAttributes(Exception exception,
                                                       HttpServletRequest httpRequest, HttpStatus httpStatus) {
@@ -72,6 +110,38 @@ public class DefaultExceptionAttributes implements ExceptionAttributes {
         return exceptionAttributes;
     }
 
+    @Override
+    public byte[] getExceptionAttributesJson(Exception exception,
+                                             HttpServletRequest httpRequest, HttpStatus httpStatus) {
+
+        StringBuilder json = new StringBuilder(256);
+
+        json.append("{\"").append(TIMESTAMP).append("\":").append(System.currentTimeMillis());
+        json.append(STATUS_FRAGMENTS.get(httpStatus));
+        json.append(EXCEPTION_FRAGMENTS.get(exception.getClass()));
+        appendQuoted(json, exception.getMessage());
+        json.append(",\"").append(PATH).append("\":");
+        appendQuoted(json, httpRequest.getServletPath());
+        json.append('}');
+
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends a String as a quoted and escaped JSON string, or
+     * <code>null</code>.
+     *
+     * @param json  The JSON being built.
+     * @param value The String value.
+     */
+    private static void appendQuoted(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"').append(JsonStringEncoder.getInstance().quoteAsString(value)).append('"');
+    }
+
     /**
      * Adds the status and error attribute values from the {@link HttpStatus}
      * value.
@@ -32,4 +32,18 @@ public interface ExceptionAttributes {
      */
     Map<String, Object> getExceptionAttributes(Exception exception, HttpServletRequest httpRequest, HttpStatus httpStatus);
 
+    /**
+     * Returns the exception attributes of
+     * {@link #getExceptionAttributes(Exception, HttpServletRequest, HttpStatus)}
+     * serialized as a UTF-8 encoded JSON object.
+     *
+     * @param exception   The Exception reported.
+     * @param httpRequest The HttpServletRequest in which the Exception
+     *                    occurred.
+     * @param httpStatus  The HttpStatus value that will be used in the
+     *                    {@link HttpServletResponse}.
+     * @return The JSON exception attributes.
+     */
+    byte[] getExceptionAttributesJson(Exception exception, HttpServletRequest httpRequest, HttpStatus httpStatus);
+
 }
@@ -0,0 +1,90 @@
+package com.solutionwerk.qb.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the stack traces logged for unexpected exceptions to
+ * <code>qb.errors.stack-traces.limit</code> per exception class in each
+ * <code>qb.errors.stack-traces.interval</code> milliseconds, so that a burst
+ * of identical failures does not flood the log. The number of stack traces
+ * suppressed is reported with the next one logged for the same class.
+ * <p/>
+ * The following metric is published:
+ * <ul>
+ * <li>errors.stack-traces.suppressed - The stack traces suppressed since the
+ * application started
+ * </ul>
+ */
+@Component
+public class StackTraceLimiter implements PublicMetrics {
+
+    /**
+     * The value of {@link #acquire(Class)} when the stack trace is suppressed.
+     */
+    public static final long SUPPRESSED = -1;
+
+    @Value("${qb.errors.stack-traces.limit:5}")
+    private int limit;
+
+    @Value("${qb.errors.stack-traces.interval:60000}")
+    private long interval;
+
+    private final ConcurrentMap<Class<?>, Window> windows = new ConcurrentHashMap<>();
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * Acquires permission to log the stack trace of an exception.
+     *
+     * @param exceptionClass The class of the exception.
+     * @return The number of stack traces of the class suppressed since the last
+     * one logged, or {@link #SUPPRESSED} if this one is to be suppressed.
+     */
+    public long acquire(Class<?> exceptionClass) {
+        Window window = windows.computeIfAbsent(exceptionClass, type -> new Window());
+        long now = System.currentTimeMillis();
+        synchronized (window) {
+            if (now - window.start >= interval) {
+                window.start = now;
+                window.logged = 0;
+            }
+            if (window.logged < limit) {
+                window.logged++;
+                long count = window.suppressed;
+                window.suppressed = 0;
+                return count;
+            }
+            window.suppressed++;
+        }
+        suppressed.incrementAndGet();
+        return SUPPRESSED;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("errors.stack-traces.suppressed", suppressed.get()));
+        return metrics;
+    }
+
+    /**
+     * The stack traces of one exception class logged in the current interval.
+     */
+    private static class Window {
+
+        private long start;
+
+        private int logged;
+
+        private long suppressed;
+    }
+}
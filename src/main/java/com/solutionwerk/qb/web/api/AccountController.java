@@ -1,15 +1,23 @@
 package com.solutionwerk.qb.web.api;
 
 import com.solutionwerk.qb.model.Account;
+import com.solutionwerk.qb.model.network.BatchResult;
 import com.solutionwerk.qb.model.network.User;
 import com.solutionwerk.qb.service.AccountService;
+import com.solutionwerk.qb.web.ratelimit.RateLimitCost;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * The AccountController class is a RESTful web service controller. The
@@ -32,71 +40,221 @@ public class AccountController extends BaseController {
     /**
      * Web service endpoint to fetch all Account entities. The service returns the collection of Account entities as JSON.
      *
-     * @return A ResponseEntity containing a Collection of Account objects.
+     * @return A Callable of a ResponseEntity containing a Collection of Account objects.
      */
     @RequestMapping(
             value = "/api/accounts",
             method = RequestMethod.GET,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Collection<Account>> getAccounts() {
-        LOGGER.info("> getAccounts");
+    @RateLimitCost(FULL_LIST_COST)
+    public Callable<ResponseEntity<Collection<Account>>> getAccounts() {
+        return () -> {
+            LOGGER.debug("> getAccounts");
 
-        Collection<Account> accounts = accountService.findAll();
+            Collection<Account> accounts = accountService.findAll();
 
-        LOGGER.info("< getAccounts");
-        return new ResponseEntity<>(accounts, HttpStatus.OK);
+            LOGGER.debug("< getAccounts");
+            return new ResponseEntity<>(accounts, HttpStatus.OK);
+        };
+    }
+
+    /**
+     * Web service endpoint to fetch one page of Account entities. The
+     * <code>page</code>, <code>size</code> and <code>sort</code> request
+     * parameters select the page, e.g. <code>?page=0&size=50&sort=id,desc</code>.
+     * The service returns the Page, including its content and totals, as JSON.
+     *
+     * @param pageable A Pageable resolved from the request parameters.
+     * @return A Callable of a ResponseEntity containing a Page of Account objects.
+     */
+    @RequestMapping(
+            value = "/api/accounts",
+            method = RequestMethod.GET,
+            params = "page",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimitCost(PAGE_COST)
+    public Callable<ResponseEntity<Page<Account>>> getAccountsPage(Pageable pageable) {
+        return () -> {
+            LOGGER.debug("> getAccountsPage page:{}", pageable.getPageNumber());
+
+            Page<Account> accounts = accountService.findAll(pageable);
+
+            LOGGER.debug("< getAccountsPage page:{}", pageable.getPageNumber());
+            return new ResponseEntity<>(accounts, HttpStatus.OK);
+        };
+    }
+
+    /**
+     * Web service endpoint to fetch the Account entities following a primary key
+     * identifier, in identifier order, e.g. <code>?after=0&size=50</code>. The
+     * identifier of the last Account returned is the <code>after</code> value of
+     * the next page; an empty collection marks the end. Unlike page numbers,
+     * the cost of a request does not grow with its position in the table.
+     *
+     * @param after A Long primary key identifier; only greater identifiers are returned.
+     * @param size  The maximum number of entities to return.
+     * @return A Callable of a ResponseEntity containing a Collection of Account objects.
+     */
+    @RequestMapping(
+            value = "/api/accounts",
+            method = RequestMethod.GET,
+            params = {"after", "!page"},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimitCost(PAGE_COST)
+    public Callable<ResponseEntity<Collection<Account>>> getAccountsAfter(@RequestParam("after") Long after,
+                                                                  @RequestParam(value = "size", defaultValue = "20") int size) {
+        return () -> {
+            LOGGER.debug("> getAccountsAfter after:{}", after);
+
+            Collection<Account> accounts = accountService.findAllAfter(after, pageSize(size));
+
+            LOGGER.debug("< getAccountsAfter after:{}", after);
+            return new ResponseEntity<>(accounts, HttpStatus.OK);
+        };
+    }
+
+    /**
+     * Web service endpoint to fetch the Account entities with the supplied
+     * primary key identifiers, e.g. <code>?ids=1,2,3</code>, in one request
+     * rather than one request per entity. The entities are served from the
+     * cache of single Account lookups; those not cached are read by one query.
+     * <p/>
+     * The Account entities found are returned as JSON, in the order of the
+     * identifiers, with HTTP status 200. Identifiers without an entity are
+     * omitted. More than MAX_PAGE_SIZE identifiers, or an empty identifier, are
+     * rejected with an empty response body and HTTP status 400.
+     *
+     * @param ids A List of Long primary key identifiers.
+     * @return A Callable of a ResponseEntity containing a Collection of Account objects.
+     */
+    @RequestMapping(
+            value = "/api/accounts",
+            method = RequestMethod.GET,
+            params = {"ids", "!page", "!after"},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimitCost(PAGE_COST)
+    public Callable<ResponseEntity<Collection<Account>>> getAccountsById(@RequestParam("ids") List<Long> ids) {
+        return () -> {
+            LOGGER.debug("> getAccountsById ids:{}", ids.size());
+
+            if (isInvalidIdList(ids)) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            Collection<Account> accounts = accountService.findAll(ids);
+
+            LOGGER.debug("< getAccountsById ids:{}", ids.size());
+            return new ResponseEntity<>(accounts, HttpStatus.OK);
+        };
+    }
+
+    /**
+     * Web service endpoint to stream all Account entities, e.g.
+     * <code>?stream=true</code>. The response is the same JSON array as the
+     * unpaginated endpoint, but each Account is written as it is read so memory
+     * use does not grow with the number of entities.
+     *
+     * @return A ResponseEntity containing a StreamingResponseBody.
+     */
+    @RequestMapping(
+            value = "/api/accounts",
+            method = RequestMethod.GET,
+            params = {"stream=true", "!page", "!after", "!ids"},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimitCost(FULL_LIST_COST)
+    public ResponseEntity<StreamingResponseBody> streamAccounts() {
+        LOGGER.debug("> streamAccounts");
+
+        StreamingResponseBody body = this.<Account>streamJsonArray(accountService::findAll);
+
+        LOGGER.debug("< streamAccounts");
+        return new ResponseEntity<>(body, HttpStatus.OK);
     }
 
     /**
      * Web service endpoint to fetch a single Account entity by username.
      * <p/>
-     * If found, the Account is returned as JSON with HTTP status 200.
+     * If found, the Account is returned as JSON with its ETag and HTTP status 200, or with an empty response body and
+     * HTTP status 304 if the If-None-Match header holds the ETag.
      * <p/>
      * If not found, the service returns an empty response body with HTTP status 404.
      *
      * @param username A Long URL path variable containing the Account primary key identifier.
-     * @return A ResponseEntity containing a single Account object, if found, and a HTTP status code as described in the method comment.
+     * @return A Callable of a ResponseEntity containing a single Account object, if found, and a HTTP status code as described in the method comment.
      */
     @RequestMapping(
             value = "/api/accounts/byUserName/{username}",
             method = RequestMethod.GET,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Account> getAccount(@PathVariable("username") String username) {
-        LOGGER.info("> getAccount username:{}", username);
+    public Callable<ResponseEntity<Account>> getAccount(@PathVariable("username") String username) {
+        return () -> {
+            LOGGER.debug("> getAccount username:{}", username);
 
-        Account account = accountService.findByUsername(username);
-        if (account == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            Account account = accountService.findByUsername(username);
+            if (account == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
 
-        LOGGER.info("< getAccount username:{}", username);
-        return new ResponseEntity<>(account, HttpStatus.OK);
+            LOGGER.debug("< getAccount username:{}", username);
+            return okWithETag(account);
+        };
     }
 
     /**
      * Web service endpoint to fetch a single Account entity by primary key identifier.
      * <p/>
-     * If found, the Account is returned as JSON with HTTP status 200.
+     * If found, the Account is returned as JSON with its ETag and HTTP status 200, or with an empty response body and
+     * HTTP status 304 if the If-None-Match header holds the ETag.
      * <p/>
      * If not found, the service returns an empty response body with HTTP status 404.
      *
      * @param id A Long URL path variable containing the Account primary key identifier.
-     * @return A ResponseEntity containing a single Account object, if found, and a HTTP status code as described in the method comment.
+     * @return A Callable of a ResponseEntity containing a single Account object, if found, and a HTTP status code as described in the method comment.
      */
     @RequestMapping(
             value = "/api/accounts/byId/{id}",
             method = RequestMethod.GET,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Account> getAccount(@PathVariable("id") Long id) {
-        LOGGER.info("> getAccount id:{}", id);
+    public Callable<ResponseEntity<Account>> getAccount(@PathVariable("id") Long id) {
+        return () -> {
+            LOGGER.debug("> getAccount id:{}", id);
 
-        Account account = accountService.findOne(id);
-        if (account == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            Account account = accountService.findOne(id);
+            if (account == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
 
-        LOGGER.info("< getAccount id:{}", id);
-        return new ResponseEntity<>(account, HttpStatus.OK);
+            LOGGER.debug("< getAccount id:{}", id);
+            return okWithETag(account);
+        };
+    }
+
+    /**
+     * Web service endpoint to fetch a single Account entity by the reference identifier used by external systems.
+     * <p/>
+     * If found, the Account is returned as JSON with its ETag and HTTP status 200, or with an empty response body and
+     * HTTP status 304 if the If-None-Match header holds the ETag.
+     * <p/>
+     * If not found, the service returns an empty response body with HTTP status 404.
+     *
+     * @param referenceId A String URL path variable containing the Account reference identifier.
+     * @return A Callable of a ResponseEntity containing a single Account object, if found, and a HTTP status code as described in the method comment.
+     */
+    @RequestMapping(
+            value = "/api/accounts/ref/{referenceId}",
+            method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Callable<ResponseEntity<Account>> getAccountByReference(@PathVariable("referenceId") String referenceId) {
+        return () -> {
+            LOGGER.debug("> getAccountByReference referenceId:{}", referenceId);
+
+            Account account = accountService.findByReferenceId(referenceId);
+            if (account == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+
+            LOGGER.debug("< getAccountByReference referenceId:{}", referenceId);
+            return okWithETag(account);
+        };
     }
 
     /**
@@ -111,7 +269,7 @@ public class AccountController extends BaseController {
      * with HTTP status 500.
      *
      * @param account The Account object to be created.
-     * @return A ResponseEntity containing a single Account object, if created
+     * @return A Callable of a ResponseEntity containing a single Account object, if created
      * successfully, and a HTTP status code as described in the method
      * comment.
      */
@@ -120,14 +278,16 @@ public class AccountController extends BaseController {
             method = RequestMethod.POST,
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Account> createAccount(
+    public Callable<ResponseEntity<Account>> createAccount(
             @RequestBody Account account) {
-        LOGGER.info("> createAccount");
+        return () -> {
+            LOGGER.debug("> createAccount");
 
-        Account savedAccount = accountService.create(account);
+            Account savedAccount = accountService.create(account);
 
-        LOGGER.info("< createAccount");
-        return new ResponseEntity<>(savedAccount, HttpStatus.CREATED);
+            LOGGER.debug("< createAccount");
+            return new ResponseEntity<>(savedAccount, HttpStatus.CREATED);
+        };
     }
 
     /**
@@ -136,7 +296,11 @@ public class AccountController extends BaseController {
      * Account is updated in the data repository.
      * <p/>
      * If updated successfully, the persisted Account is returned as JSON with
-     * HTTP status 200.
+     * its ETag and HTTP status 200.
+     * <p/>
+     * If an If-Match header is supplied and does not hold the ETag of the
+     * current Account, or the Account is modified before the change is written,
+     * the service returns HTTP status 412.
      * <p/>
      * If not found, the service returns an empty response body and HTTP status
      * 404.
@@ -145,7 +309,8 @@ public class AccountController extends BaseController {
      * with HTTP status 500.
      *
      * @param account The Account object to be updated.
-     * @return A ResponseEntity containing a single Account object, if updated
+     * @param ifMatch The optional If-Match header value.
+     * @return A Callable of a ResponseEntity containing a single Account object, if updated
      * successfully, and a HTTP status code as described in the method
      * comment.
      */
@@ -154,16 +319,68 @@ public class AccountController extends BaseController {
             method = RequestMethod.PUT,
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Account> updateAccount(@RequestBody Account account) {
-        LOGGER.info("> updateAccount id:{}", account.getId());
+    public Callable<ResponseEntity<Account>> updateAccount(@RequestBody Account account,
+                                                           @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return () -> {
+            LOGGER.debug("> updateAccount id:{}", account.getId());
+
+            Integer version = ifMatchVersion(ifMatch, () -> account.getId() != null ? accountService.findOne(account.getId()) : null);
 
-        Account updatedAccount = accountService.update(account);
-        if (updatedAccount == null) {
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+            Account updatedAccount = accountService.update(account, version);
+            if (updatedAccount == null) {
+                return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            }
 
-        LOGGER.info("< updateAccount id:{}", account.getId());
-        return new ResponseEntity<>(updatedAccount, HttpStatus.OK);
+            LOGGER.debug("< updateAccount id:{}", account.getId());
+            return okWithETag(updatedAccount);
+        };
+    }
+
+    /**
+     * Web service endpoint to update only some attributes of a single Account
+     * entity. The HTTP request body is a JSON object holding just the
+     * attributes to be changed. The primary key identifier of the Account is
+     * supplied in the URL as a path variable. Only an ADMIN may patch an
+     * Account; other users receive HTTP status 403.
+     * <p/>
+     * If updated successfully, the persisted Account is returned as JSON with
+     * its ETag and HTTP status 200.
+     * <p/>
+     * If an If-Match header is supplied and does not hold the ETag of the
+     * current Account, or the Account is modified before the change is written,
+     * the service returns HTTP status 412.
+     * <p/>
+     * If the request body names an attribute which cannot be patched, or
+     * holds a value of the wrong type, the service returns HTTP status 400.
+     * <p/>
+     * If not found, the service returns HTTP status 404.
+     *
+     * @param id      A Long URL path variable containing the Account primary key
+     *                identifier.
+     * @param patch   A Map of attribute names to new values.
+     * @param ifMatch The optional If-Match header value.
+     * @return A Callable of a ResponseEntity containing a single Account object, if updated
+     * successfully, and a HTTP status code as described in the method
+     * comment.
+     */
+    @RequestMapping(
+            value = "/api/accounts/{id}",
+            method = RequestMethod.PATCH,
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Callable<ResponseEntity<Account>> patchAccount(@PathVariable("id") Long id,
+                                                          @RequestBody Map<String, Object> patch,
+                                                          @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return () -> {
+            LOGGER.debug("> patchAccount id:{}", id);
+
+            Integer version = ifMatchVersion(ifMatch, () -> accountService.findOne(id));
+
+            Account updatedAccount = accountService.patch(id, patch, version);
+
+            LOGGER.debug("< patchAccount id:{}", id);
+            return okWithETag(updatedAccount);
+        };
     }
 
     /**
@@ -174,24 +391,34 @@ public class AccountController extends BaseController {
      * If deleted successfully, the service returns an empty response body with
      * HTTP status 204.
      * <p/>
+     * If an If-Match header is supplied and does not hold the ETag of the
+     * current Account, or the Account is modified before the change is written,
+     * the service returns HTTP status 412.
+     * <p/>
      * If not deleted successfully, the service returns an empty response body
      * with HTTP status 500.
      *
-     * @param id A Long URL path variable containing the Account primary key
-     *           identifier.
-     * @return A ResponseEntity with an empty response body and a HTTP status
+     * @param id      A Long URL path variable containing the Account primary key
+     *                identifier.
+     * @param ifMatch The optional If-Match header value.
+     * @return A Callable of a ResponseEntity with an empty response body and a HTTP status
      * code as described in the method comment.
      */
     @RequestMapping(
             value = "/api/accounts/{id}",
             method = RequestMethod.DELETE)
-    public ResponseEntity<Account> deleteAccount(@PathVariable("id") Long id) {
-        LOGGER.info("> deleteAccount id:{}", id);
+    public Callable<ResponseEntity<Account>> deleteAccount(@PathVariable("id") Long id,
+                                                           @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return () -> {
+            LOGGER.debug("> deleteAccount id:{}", id);
+
+            Integer version = ifMatchVersion(ifMatch, () -> accountService.findOne(id));
 
-        accountService.delete(id);
+            accountService.delete(id, version);
 
-        LOGGER.info("< deleteAccount id:{}", id);
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            LOGGER.debug("< deleteAccount id:{}", id);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        };
     }
 
     /**
@@ -206,7 +433,7 @@ public class AccountController extends BaseController {
      * with HTTP status 500.
      *
      * @param user The User object with Account, Roles and Profile object to be created.
-     * @return A ResponseEntity containing a single Account object, if created
+     * @return A Callable of a ResponseEntity containing a single Account object, if created
      * successfully, and a HTTP status code as described in the method
      * comment.
      */
@@ -215,14 +442,53 @@ public class AccountController extends BaseController {
             method = RequestMethod.POST,
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Account> createUser(
+    public Callable<ResponseEntity<Account>> createUser(
             @RequestBody User user) {
-        LOGGER.info("> createUser");
+        return () -> {
+            LOGGER.debug("> createUser");
 
-        Account savedAccount = accountService.create(user);
+            Account savedAccount = accountService.create(user);
 
-        LOGGER.info("< createUser");
-        return new ResponseEntity<>(savedAccount, HttpStatus.CREATED);
+            LOGGER.debug("< createUser");
+            return new ResponseEntity<>(savedAccount, HttpStatus.CREATED);
+        };
+    }
+
+    /**
+     * Web service endpoint to create many Users. The HTTP request body is
+     * expected to contain an array of User objects, each with Account, Roles
+     * and Profile elements, in JSON format. The Users are persisted in chunks,
+     * each in its own transaction.
+     * <p/>
+     * The service returns an array of results with HTTP status 200, one per
+     * User in request order. Each result holds either the persisted Account
+     * and status 201, or the status, exception and message of its failure; a
+     * failed User does not prevent the others from being created. More than
+     * <code>qb.batch.max-size</code> Users are rejected with an empty response
+     * body and HTTP status 400.
+     *
+     * @param users The List of User objects to be created.
+     * @return A Callable of a ResponseEntity containing a List of BatchResult objects.
+     */
+    @RequestMapping(
+            value = "/api/accounts/users/batch",
+            method = RequestMethod.POST,
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimitCost(BATCH_COST)
+    public Callable<ResponseEntity<List<BatchResult<Account>>>> createUsers(
+            @RequestBody List<User> users) {
+        return () -> {
+            LOGGER.debug("> createUsers size:{}", users.size());
+
+            if (isBatchTooLarge(users)) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            List<BatchResult<Account>> results = accountService.createAll(users);
+
+            LOGGER.debug("< createUsers size:{}", users.size());
+            return new ResponseEntity<>(results, HttpStatus.OK);
+        };
     }
 
     /**
@@ -231,7 +497,11 @@ public class AccountController extends BaseController {
      * The Account is updated in the data repository.
      * <p/>
      * If updated successfully, the persisted Account is returned as JSON with
-     * HTTP status 200.
+     * its ETag and HTTP status 200.
+     * <p/>
+     * If an If-Match header is supplied and does not hold the ETag of the
+     * current Account, or the Account is modified before the change is written,
+     * the service returns HTTP status 412.
      * <p/>
      * If not found, the service returns an empty response body and HTTP status
      * 404.
@@ -239,8 +509,9 @@ public class AccountController extends BaseController {
      * If not updated successfully, the service returns an empty response body
      * with HTTP status 500.
      *
-     * @param user The Account object to be updated.
-     * @return A ResponseEntity containing a single Account object, if updated
+     * @param user    The Account object to be updated.
+     * @param ifMatch The optional If-Match header value.
+     * @return A Callable of a ResponseEntity containing a single Account object, if updated
      * successfully, and a HTTP status code as described in the method
      * comment.
      */
@@ -249,16 +520,22 @@ public class AccountController extends BaseController {
             method = RequestMethod.PUT,
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Account> updateUser(@RequestBody User user) {
-        LOGGER.info("> updateUser");
+    public Callable<ResponseEntity<Account>> updateUser(@RequestBody User user,
+                                                        @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return () -> {
+            LOGGER.debug("> updateUser");
+
+            Long id = user.getAccount().getId();
+            Integer version = ifMatchVersion(ifMatch, () -> id != null ? accountService.findOne(id) : null);
 
-        Account updatedAccount = accountService.update(user);
-        if (updatedAccount == null) {
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+            Account updatedAccount = accountService.update(user, version);
+            if (updatedAccount == null) {
+                return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            }
 
-        LOGGER.info("< updateUser");
-        return new ResponseEntity<>(updatedAccount, HttpStatus.OK);
+            LOGGER.debug("< updateUser");
+            return okWithETag(updatedAccount);
+        };
     }
 
 }
@@ -1,22 +1,48 @@
 package com.solutionwerk.qb.web.api;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solutionwerk.qb.model.TransactionalEntity;
+import com.solutionwerk.qb.service.PreconditionFailedException;
+import com.solutionwerk.qb.util.PropertyPatchException;
 import com.solutionwerk.qb.web.DefaultExceptionAttributes;
 import com.solutionwerk.qb.web.ExceptionAttributes;
+import com.solutionwerk.qb.web.StackTraceLimiter;
+import com.solutionwerk.qb.web.ratelimit.RateLimitExceededException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.persistence.NoResultException;
+import javax.persistence.OptimisticLockException;
 import javax.servlet.http.HttpServletRequest;
-import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * The BaseController class implements common functionality for all Controller
  * classes. The <code>@ExceptionHandler</code> methods provide a consistent
  * response when Exceptions are thrown from <code>@RequestMapping</code>
  * annotated Controller methods.
+ * <p/>
+ * The API endpoints return a <code>Callable</code>, which is invoked on the
+ * executor configured in MvcConfig rather than on the container thread. The
+ * RequestContext of the request is propagated to the executor thread.
  *
  * @author Piyush Ramavat
  */
@@ -27,6 +53,213 @@ public class BaseController {
      */
     protected Logger LOGGER = LoggerFactory.getLogger(this.getClass());
 
+    /**
+     * The largest page size served by keyset paginated endpoints.
+     */
+    protected static final int MAX_PAGE_SIZE = 2000;
+
+    /**
+     * The number of entities read per query by streaming endpoints.
+     */
+    protected static final int STREAM_BATCH_SIZE = 500;
+
+    /**
+     * The rate limit tokens taken by a request reading all entities of a type.
+     */
+    protected static final int FULL_LIST_COST = 50;
+
+    /**
+     * The rate limit tokens taken by a request reading a page of entities.
+     */
+    protected static final int PAGE_COST = 5;
+
+    /**
+     * The rate limit tokens taken by a request persisting a batch of entities.
+     */
+    protected static final int BATCH_COST = 10;
+
+    /**
+     * The largest number of items accepted by a batch endpoint.
+     */
+    @Value("${qb.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    /**
+     * The application ObjectMapper used to serialize streamed responses.
+     */
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * The exception attributes of every error response. The instance is
+     * stateless and shared.
+     */
+    private static final ExceptionAttributes EXCEPTION_ATTRIBUTES = new DefaultExceptionAttributes();
+
+    /**
+     * The headers of every error response.
+     */
+    private static final HttpHeaders EXCEPTION_HEADERS;
+
+    static {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        EXCEPTION_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    /**
+     * Limits the stack traces logged by {@link #handleException}.
+     */
+    @Autowired
+    private StackTraceLimiter stackTraceLimiter;
+
+    /**
+     * Limits a requested page size to the range 1 to MAX_PAGE_SIZE.
+     *
+     * @param size The requested page size.
+     * @return The page size to be served.
+     */
+    protected int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Returns <code>true</code> if a List of primary key identifiers is longer
+     * than MAX_PAGE_SIZE or holds an empty identifier, e.g.
+     * <code>?ids=1,,2</code>.
+     *
+     * @param ids The List of Long primary key identifiers.
+     * @return A boolean.
+     */
+    protected boolean isInvalidIdList(List<Long> ids) {
+        return ids.size() > MAX_PAGE_SIZE || ids.contains(null);
+    }
+
+    /**
+     * Returns <code>true</code> if a batch request holds more items than the
+     * batch endpoints accept.
+     *
+     * @param items The Collection of request items.
+     * @return A boolean.
+     */
+    protected boolean isBatchTooLarge(Collection<?> items) {
+        return items.size() > maxBatchSize;
+    }
+
+    /**
+     * Returns the strong entity tag of an entity, derived from its primary key
+     * identifier and the version incremented by every update.
+     *
+     * @param entity A persisted TransactionalEntity.
+     * @return A quoted ETag value.
+     */
+    protected String eTag(TransactionalEntity entity) {
+        return "\"" + entity.getId() + "." + entity.getVersion() + "\"";
+    }
+
+    /**
+     * Creates a HTTP status 200 response containing the entity and its ETag.
+     * Should the <code>If-None-Match</code> header of a GET request hold that
+     * ETag, the response is sent with HTTP status 304 instead and the entity is
+     * not serialized.
+     *
+     * @param entity A persisted TransactionalEntity.
+     * @param <T>    The entity type.
+     * @return A ResponseEntity containing the entity.
+     */
+    protected <T extends TransactionalEntity> ResponseEntity<T> okWithETag(T entity) {
+        return ResponseEntity.ok().eTag(eTag(entity)).body(entity);
+    }
+
+    /**
+     * Evaluates the <code>If-Match</code> header of a request modifying an
+     * entity. The current entity is only looked up, normally in a service
+     * cache, when the header is present; no write transaction is opened, so a
+     * stale precondition is refused cheaply.
+     * <p/>
+     * The version returned must be passed to the service method modifying the
+     * entity, which checks it again within its transaction. A modification
+     * committed after this check is therefore never overwritten.
+     *
+     * @param ifMatch The If-Match header value, or <code>null</code> if absent.
+     * @param current Supplies the current entity, or <code>null</code> if none.
+     * @return The version of the current entity when the header holds its
+     * ETag, or <code>null</code> if the header is absent or <code>*</code>.
+     * @throws PreconditionFailedException Thrown if the header holds neither
+     *                                     the ETag of the current entity nor
+     *                                     <code>*</code>.
+     */
+    protected Integer ifMatchVersion(String ifMatch, Supplier<? extends TransactionalEntity> current) {
+        if (ifMatch == null) {
+            return null;
+        }
+        TransactionalEntity entity = current.get();
+        if (entity == null) {
+            throw new PreconditionFailedException("The entity does not exist.");
+        }
+        String eTag = eTag(entity);
+        for (String candidate : ifMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals(eTag)) {
+                return entity.getVersion();
+            }
+            if (candidate.equals("*")) {
+                return null;
+            }
+        }
+        LOGGER.debug("Precondition failed; If-Match:{} ETag:{}", ifMatch, eTag);
+        throw new PreconditionFailedException("The entity has been modified.");
+    }
+
+    /**
+     * Creates a response body which writes each entity passed to the consumer
+     * as an element of a JSON array, as the entity is read. The complete
+     * collection is never held in memory.
+     *
+     * @param finder A service method which passes entities, read in batches of
+     *               the supplied size, to the supplied Consumer.
+     * @param <T>    The entity type.
+     * @return A StreamingResponseBody.
+     */
+    protected <T> StreamingResponseBody streamJsonArray(BiConsumer<Integer, Consumer<T>> finder) {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+                generator.writeStartArray();
+                try {
+                    finder.accept(STREAM_BATCH_SIZE, entity -> {
+                        try {
+                            generator.writeObject(entity);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Creates an error response holding the exception attributes as JSON.
+     *
+     * @param exception  The Exception reported.
+     * @param request    The HttpServletRequest in which the Exception was raised.
+     * @param httpStatus The HttpStatus of the response.
+     * @return A ResponseEntity containing the Exception Attributes in the body.
+     */
+    private ResponseEntity<byte[]> exceptionResponse(Exception exception, HttpServletRequest request,
+                                                     HttpStatus httpStatus) {
+        return exceptionResponse(exception, request, httpStatus, EXCEPTION_HEADERS);
+    }
+
+    private ResponseEntity<byte[]> exceptionResponse(Exception exception, HttpServletRequest request,
+                                                     HttpStatus httpStatus, HttpHeaders headers) {
+        return new ResponseEntity<>(EXCEPTION_ATTRIBUTES.getExceptionAttributesJson(exception, request, httpStatus),
+                headers, httpStatus);
+    }
+
     /**
      * Handles JPA NoResultExceptions thrown from web service controller
      * methods. Creates a response with Exception Attributes as JSON and HTTP
@@ -39,16 +272,108 @@ public class BaseController {
      * and HTTP status code 404.
      */
     @ExceptionHandler(NoResultException.class)
-    public ResponseEntity<Map<String, Object>> handleNoResultException(NoResultException noResultException, HttpServletRequest request) {
+    public ResponseEntity<byte[]> handleNoResultException(NoResultException noResultException, HttpServletRequest request) {
+
+        LOGGER.debug("handleNoResultException");
+        return exceptionResponse(noResultException, request, HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Handles PropertyPatchExceptions thrown from web service controller
+     * methods. Creates a response with Exception Attributes as JSON and HTTP
+     * status code 400, bad request.
+     *
+     * @param propertyPatchException A PropertyPatchException instance.
+     * @param request                The HttpServletRequest in which the
+     *                               PropertyPatchException was raised.
+     * @return A ResponseEntity containing the Exception Attributes in the body
+     * and HTTP status code 400.
+     */
+    @ExceptionHandler(PropertyPatchException.class)
+    public ResponseEntity<byte[]> handlePropertyPatchException(PropertyPatchException propertyPatchException, HttpServletRequest request) {
+
+        LOGGER.debug("handlePropertyPatchException");
+        return exceptionResponse(propertyPatchException, request, HttpStatus.BAD_REQUEST);
+    }
 
-        LOGGER.info("> handleNoResultException");
+    /**
+     * Handles optimistic locking conflicts which persisted after the service
+     * method was retried. Creates a response with Exception Attributes as
+     * JSON and HTTP status code 409, conflict. A conflict is expected under
+     * concurrent edits, so no stack trace is logged.
+     *
+     * @param conflictException An OptimisticLockingFailureException or
+     *                          OptimisticLockException instance.
+     * @param request           The HttpServletRequest in which the
+     *                          conflict was raised.
+     * @return A ResponseEntity containing the Exception Attributes in the body
+     * and HTTP status code 409.
+     */
+    @ExceptionHandler({OptimisticLockingFailureException.class, OptimisticLockException.class})
+    public ResponseEntity<byte[]> handleConflictException(Exception conflictException, HttpServletRequest request) {
 
-        ExceptionAttributes exceptionAttributes = new DefaultExceptionAttributes();
+        LOGGER.debug("handleConflictException");
+        return exceptionResponse(conflictException, request, HttpStatus.CONFLICT);
+    }
 
-        Map<String, Object> responseBody = exceptionAttributes.getExceptionAttributes(noResultException, request, HttpStatus.NOT_FOUND);
+    /**
+     * Handles PreconditionFailedExceptions thrown when the If-Match header of
+     * a request does not hold the ETag of the entity to be modified. Creates a
+     * response with Exception Attributes as JSON and HTTP status code 412,
+     * precondition failed.
+     *
+     * @param preconditionFailedException A PreconditionFailedException instance.
+     * @param request                     The HttpServletRequest in which the
+     *                                    PreconditionFailedException was raised.
+     * @return A ResponseEntity containing the Exception Attributes in the body
+     * and HTTP status code 412.
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<byte[]> handlePreconditionFailedException(PreconditionFailedException preconditionFailedException,
+                                                                    HttpServletRequest request) {
 
-        LOGGER.info("< handleNoResultException");
-        return new ResponseEntity<>(responseBody, HttpStatus.NOT_FOUND);
+        LOGGER.debug("handlePreconditionFailedException");
+        return exceptionResponse(preconditionFailedException, request, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    /**
+     * Handles RejectedExecutionExceptions thrown when the executor of the
+     * asynchronous endpoints is saturated. Creates a response with Exception
+     * Attributes as JSON and HTTP status code 503, service unavailable.
+     *
+     * @param rejectedExecutionException A RejectedExecutionException instance.
+     * @param request                    The HttpServletRequest in which the
+     *                                   RejectedExecutionException was raised.
+     * @return A ResponseEntity containing the Exception Attributes in the body
+     * and HTTP status code 503.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<byte[]> handleRejectedExecutionException(RejectedExecutionException rejectedExecutionException, HttpServletRequest request) {
+
+        LOGGER.debug("handleRejectedExecutionException");
+        return exceptionResponse(rejectedExecutionException, request, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Handles RateLimitExceededExceptions thrown when a request exceeds the
+     * rate limit of its OAuth client or user. Creates a response with
+     * Exception Attributes as JSON, a Retry-After header and HTTP status code
+     * 429, too many requests.
+     *
+     * @param rateLimitExceededException A RateLimitExceededException instance.
+     * @param request                    The HttpServletRequest in which the
+     *                                   RateLimitExceededException was raised.
+     * @return A ResponseEntity containing the Exception Attributes in the body
+     * and HTTP status code 429.
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<byte[]> handleRateLimitExceededException(RateLimitExceededException rateLimitExceededException, HttpServletRequest request) {
+
+        LOGGER.debug("handleRateLimitExceededException");
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(EXCEPTION_HEADERS);
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(rateLimitExceededException.getRetryAfterSeconds()));
+        return exceptionResponse(rateLimitExceededException, request, HttpStatus.TOO_MANY_REQUESTS, headers);
     }
 
     /**
@@ -63,17 +388,21 @@ public class BaseController {
      * and a HTTP status code 500.
      */
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Map<String, Object>> handleException(Exception exception, HttpServletRequest request) {
-
-        LOGGER.error("> handleException");
-        LOGGER.error("- Exception: ", exception);
+    public ResponseEntity<byte[]> handleException(Exception exception, HttpServletRequest request) {
 
-        ExceptionAttributes exceptionAttributes = new DefaultExceptionAttributes();
+        LOGGER.debug("> handleException");
 
-        Map<String, Object> responseBody = exceptionAttributes.getExceptionAttributes(exception, request, HttpStatus.INTERNAL_SERVER_ERROR);
+        long suppressed = stackTraceLimiter.acquire(exception.getClass());
+        if (suppressed > 0) {
+            LOGGER.error("- Exception ({} similar suppressed): ", suppressed, exception);
+        } else if (suppressed != StackTraceLimiter.SUPPRESSED) {
+            LOGGER.error("- Exception: ", exception);
+        } else {
+            LOGGER.debug("- Exception: {}", exception.toString());
+        }
 
-        LOGGER.error("< handleException");
-        return new ResponseEntity<>(responseBody, HttpStatus.INTERNAL_SERVER_ERROR);
+        LOGGER.debug("< handleException");
+        return exceptionResponse(exception, request, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
 }
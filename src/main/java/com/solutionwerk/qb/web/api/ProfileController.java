@@ -1,14 +1,22 @@
 package com.solutionwerk.qb.web.api;
 
 import com.solutionwerk.qb.model.Profile;
+import com.solutionwerk.qb.model.network.BatchResult;
 import com.solutionwerk.qb.service.ProfileService;
+import com.solutionwerk.qb.web.ratelimit.RateLimitCost;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * The ProfileController class is a RESTful web service controller. The
@@ -32,50 +40,203 @@ public class ProfileController extends BaseController {
      * Web service endpoint to fetch all Profile entities. The service returns
      * the collection of Profile entities as JSON.
      *
-     * @return A ResponseEntity containing a Collection of Profile objects.
+     * @return A Callable of a ResponseEntity containing a Collection of Profile objects.
      */
     @RequestMapping(
             value = "/api/profiles",
             method = RequestMethod.GET,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Collection<Profile>> getProfiles() {
-        LOGGER.info("> getProfiles");
+    @RateLimitCost(FULL_LIST_COST)
+    public Callable<ResponseEntity<Collection<Profile>>> getProfiles() {
+        return () -> {
+            LOGGER.debug("> getProfiles");
 
-        Collection<Profile> profiles = profileService.findAll();
+            Collection<Profile> profiles = profileService.findAll();
 
-        LOGGER.info("< getProfiles");
-        return new ResponseEntity<>(profiles,
-                HttpStatus.OK);
+            LOGGER.debug("< getProfiles");
+            return new ResponseEntity<>(profiles,
+                    HttpStatus.OK);
+        };
+    }
+
+    /**
+     * Web service endpoint to fetch one page of Profile entities. The
+     * <code>page</code>, <code>size</code> and <code>sort</code> request
+     * parameters select the page, e.g. <code>?page=0&size=50&sort=id,desc</code>.
+     * The service returns the Page, including its content and totals, as JSON.
+     *
+     * @param pageable A Pageable resolved from the request parameters.
+     * @return A Callable of a ResponseEntity containing a Page of Profile objects.
+     */
+    @RequestMapping(
+            value = "/api/profiles",
+            method = RequestMethod.GET,
+            params = "page",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimitCost(PAGE_COST)
+    public Callable<ResponseEntity<Page<Profile>>> getProfilesPage(Pageable pageable) {
+        return () -> {
+            LOGGER.debug("> getProfilesPage page:{}", pageable.getPageNumber());
+
+            Page<Profile> profiles = profileService.findAll(pageable);
+
+            LOGGER.debug("< getProfilesPage page:{}", pageable.getPageNumber());
+            return new ResponseEntity<>(profiles, HttpStatus.OK);
+        };
+    }
+
+    /**
+     * Web service endpoint to fetch the Profile entities following a primary key
+     * identifier, in identifier order, e.g. <code>?after=0&size=50</code>. The
+     * identifier of the last Profile returned is the <code>after</code> value of
+     * the next page; an empty collection marks the end. Unlike page numbers,
+     * the cost of a request does not grow with its position in the table.
+     *
+     * @param after A Long primary key identifier; only greater identifiers are returned.
+     * @param size  The maximum number of entities to return.
+     * @return A Callable of a ResponseEntity containing a Collection of Profile objects.
+     */
+    @RequestMapping(
+            value = "/api/profiles",
+            method = RequestMethod.GET,
+            params = {"after", "!page"},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimitCost(PAGE_COST)
+    public Callable<ResponseEntity<Collection<Profile>>> getProfilesAfter(@RequestParam("after") Long after,
+                                                                  @RequestParam(value = "size", defaultValue = "20") int size) {
+        return () -> {
+            LOGGER.debug("> getProfilesAfter after:{}", after);
+
+            Collection<Profile> profiles = profileService.findAllAfter(after, pageSize(size));
+
+            LOGGER.debug("< getProfilesAfter after:{}", after);
+            return new ResponseEntity<>(profiles, HttpStatus.OK);
+        };
+    }
+
+    /**
+     * Web service endpoint to fetch the Profile entities with the supplied
+     * primary key identifiers, e.g. <code>?ids=1,2,3</code>, in one request
+     * rather than one request per entity. The entities are served from the
+     * cache of single Profile lookups; those not cached are read by one query.
+     * <p/>
+     * The Profile entities found are returned as JSON, in the order of the
+     * identifiers, with HTTP status 200. Identifiers without an entity are
+     * omitted. More than MAX_PAGE_SIZE identifiers, or an empty identifier, are
+     * rejected with an empty response body and HTTP status 400.
+     *
+     * @param ids A List of Long primary key identifiers.
+     * @return A Callable of a ResponseEntity containing a Collection of Profile objects.
+     */
+    @RequestMapping(
+            value = "/api/profiles",
+            method = RequestMethod.GET,
+            params = {"ids", "!page", "!after"},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimitCost(PAGE_COST)
+    public Callable<ResponseEntity<Collection<Profile>>> getProfilesById(@RequestParam("ids") List<Long> ids) {
+        return () -> {
+            LOGGER.debug("> getProfilesById ids:{}", ids.size());
+
+            if (isInvalidIdList(ids)) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            Collection<Profile> profiles = profileService.findAll(ids);
+
+            LOGGER.debug("< getProfilesById ids:{}", ids.size());
+            return new ResponseEntity<>(profiles, HttpStatus.OK);
+        };
+    }
+
+    /**
+     * Web service endpoint to stream all Profile entities, e.g.
+     * <code>?stream=true</code>. The response is the same JSON array as the
+     * unpaginated endpoint, but each Profile is written as it is read so memory
+     * use does not grow with the number of entities.
+     *
+     * @return A ResponseEntity containing a StreamingResponseBody.
+     */
+    @RequestMapping(
+            value = "/api/profiles",
+            method = RequestMethod.GET,
+            params = {"stream=true", "!page", "!after", "!ids"},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimitCost(FULL_LIST_COST)
+    public ResponseEntity<StreamingResponseBody> streamProfiles() {
+        LOGGER.debug("> streamProfiles");
+
+        StreamingResponseBody body = this.<Profile>streamJsonArray(profileService::findAll);
+
+        LOGGER.debug("< streamProfiles");
+        return new ResponseEntity<>(body, HttpStatus.OK);
     }
 
     /**
      * Web service endpoint to fetch a single Profile entity by primary key
      * identifier.
      * <p/>
-     * If found, the Profile is returned as JSON with HTTP status 200.
+     * If found, the Profile is returned as JSON with its ETag and HTTP status
+     * 200, or with an empty response body and HTTP status 304 if the
+     * If-None-Match header holds the ETag.
      * <p/>
      * If not found, the service returns an empty response body with HTTP status
      * 404.
      *
      * @param id A Long URL path variable containing the Profile primary key
      *           identifier.
-     * @return A ResponseEntity containing a single Profile object, if found,
+     * @return A Callable of a ResponseEntity containing a single Profile object, if found,
      * and a HTTP status code as described in the method comment.
      */
     @RequestMapping(
             value = "/api/profiles/{id}",
             method = RequestMethod.GET,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Profile> getProfile(@PathVariable("id") Long id) {
-        LOGGER.info("> getProfile id:{}", id);
+    public Callable<ResponseEntity<Profile>> getProfile(@PathVariable("id") Long id) {
+        return () -> {
+            LOGGER.debug("> getProfile id:{}", id);
 
-        Profile profile = profileService.findOne(id);
-        if (profile == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+            Profile profile = profileService.findOne(id);
+            if (profile == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
 
-        LOGGER.info("< getProfile id:{}", id);
-        return new ResponseEntity<>(profile, HttpStatus.OK);
+            LOGGER.debug("< getProfile id:{}", id);
+            return okWithETag(profile);
+        };
+    }
+
+    /**
+     * Web service endpoint to fetch a single Profile entity by the reference
+     * identifier used by external systems.
+     * <p/>
+     * If found, the Profile is returned as JSON with its ETag and HTTP status
+     * 200, or with an empty response body and HTTP status 304 if the
+     * If-None-Match header holds the ETag.
+     * <p/>
+     * If not found, the service returns an empty response body with HTTP status
+     * 404.
+     *
+     * @param referenceId A String URL path variable containing the Profile
+     *                    reference identifier.
+     * @return A Callable of a ResponseEntity containing a single Profile object, if found,
+     * and a HTTP status code as described in the method comment.
+     */
+    @RequestMapping(
+            value = "/api/profiles/ref/{referenceId}",
+            method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Callable<ResponseEntity<Profile>> getProfileByReference(@PathVariable("referenceId") String referenceId) {
+        return () -> {
+            LOGGER.debug("> getProfileByReference referenceId:{}", referenceId);
+
+            Profile profile = profileService.findByReferenceId(referenceId);
+            if (profile == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+
+            LOGGER.debug("< getProfileByReference referenceId:{}", referenceId);
+            return okWithETag(profile);
+        };
     }
 
     /**
@@ -90,7 +251,7 @@ public class ProfileController extends BaseController {
      * with HTTP status 500.
      *
      * @param profile The Profile object to be created.
-     * @return A ResponseEntity containing a single Profile object, if created
+     * @return A Callable of a ResponseEntity containing a single Profile object, if created
      * successfully, and a HTTP status code as described in the method
      * comment.
      */
@@ -99,14 +260,52 @@ public class ProfileController extends BaseController {
             method = RequestMethod.POST,
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Profile> createProfile(
+    public Callable<ResponseEntity<Profile>> createProfile(
             @RequestBody Profile profile) {
-        LOGGER.info("> createProfile");
+        return () -> {
+            LOGGER.debug("> createProfile");
+
+            Profile savedProfile = profileService.create(profile);
 
-        Profile savedProfile = profileService.create(profile);
+            LOGGER.debug("< createProfile");
+            return new ResponseEntity<>(savedProfile, HttpStatus.CREATED);
+        };
+    }
+
+    /**
+     * Web service endpoint to create many Profile entities. The HTTP request
+     * body is expected to contain an array of Profile objects in JSON format.
+     * The Profiles are persisted in chunks, each in its own transaction.
+     * <p/>
+     * The service returns an array of results with HTTP status 200, one per
+     * Profile in request order. Each result holds either the persisted Profile
+     * and status 201, or the status, exception and message of its failure; a
+     * failed Profile does not prevent the others from being created. More than
+     * <code>qb.batch.max-size</code> Profiles are rejected with an empty response
+     * body and HTTP status 400.
+     *
+     * @param profiles The List of Profile objects to be created.
+     * @return A Callable of a ResponseEntity containing a List of BatchResult objects.
+     */
+    @RequestMapping(
+            value = "/api/profiles/batch",
+            method = RequestMethod.POST,
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimitCost(BATCH_COST)
+    public Callable<ResponseEntity<List<BatchResult<Profile>>>> createProfiles(
+            @RequestBody List<Profile> profiles) {
+        return () -> {
+            LOGGER.debug("> createProfiles size:{}", profiles.size());
+
+            if (isBatchTooLarge(profiles)) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            List<BatchResult<Profile>> results = profileService.createAll(profiles);
 
-        LOGGER.info("< createProfile");
-        return new ResponseEntity<>(savedProfile, HttpStatus.CREATED);
+            LOGGER.debug("< createProfiles size:{}", profiles.size());
+            return new ResponseEntity<>(results, HttpStatus.OK);
+        };
     }
 
     /**
@@ -115,7 +314,11 @@ public class ProfileController extends BaseController {
      * Profile is updated in the data repository.
      * <p/>
      * If updated successfully, the persisted Profile is returned as JSON with
-     * HTTP status 200.
+     * its ETag and HTTP status 200.
+     * <p/>
+     * If an If-Match header is supplied and does not hold the ETag of the
+     * current Profile, or the Profile is modified before the change is written,
+     * the service returns HTTP status 412.
      * <p/>
      * If not found, the service returns an empty response body and HTTP status
      * 404.
@@ -124,7 +327,8 @@ public class ProfileController extends BaseController {
      * with HTTP status 500.
      *
      * @param profile The Profile object to be updated.
-     * @return A ResponseEntity containing a single Profile object, if updated
+     * @param ifMatch The optional If-Match header value.
+     * @return A Callable of a ResponseEntity containing a single Profile object, if updated
      * successfully, and a HTTP status code as described in the method
      * comment.
      */
@@ -133,16 +337,67 @@ public class ProfileController extends BaseController {
             method = RequestMethod.PUT,
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Profile> updateProfile(@RequestBody Profile profile) {
-        LOGGER.info("> updateProfile id:{}", profile.getId());
+    public Callable<ResponseEntity<Profile>> updateProfile(@RequestBody Profile profile,
+                                                           @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return () -> {
+            LOGGER.debug("> updateProfile id:{}", profile.getId());
 
-        Profile updatedProfile = profileService.update(profile);
-        if (updatedProfile == null) {
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+            Integer version = ifMatchVersion(ifMatch, () -> profile.getId() != null ? profileService.findOne(profile.getId()) : null);
 
-        LOGGER.info("< updateProfile id:{}", profile.getId());
-        return new ResponseEntity<>(updatedProfile, HttpStatus.OK);
+            Profile updatedProfile = profileService.update(profile, version);
+            if (updatedProfile == null) {
+                return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+
+            LOGGER.debug("< updateProfile id:{}", profile.getId());
+            return okWithETag(updatedProfile);
+        };
+    }
+
+    /**
+     * Web service endpoint to update only some attributes of a single Profile
+     * entity. The HTTP request body is a JSON object holding just the
+     * attributes to be changed. The primary key identifier of the Profile is
+     * supplied in the URL as a path variable.
+     * <p/>
+     * If updated successfully, the persisted Profile is returned as JSON with
+     * its ETag and HTTP status 200.
+     * <p/>
+     * If an If-Match header is supplied and does not hold the ETag of the
+     * current Profile, or the Profile is modified before the change is written,
+     * the service returns HTTP status 412.
+     * <p/>
+     * If the request body names an attribute which cannot be patched, or
+     * holds a value of the wrong type, the service returns HTTP status 400.
+     * <p/>
+     * If not found, the service returns HTTP status 404.
+     *
+     * @param id      A Long URL path variable containing the Profile primary key
+     *                identifier.
+     * @param patch   A Map of attribute names to new values.
+     * @param ifMatch The optional If-Match header value.
+     * @return A Callable of a ResponseEntity containing a single Profile object, if updated
+     * successfully, and a HTTP status code as described in the method
+     * comment.
+     */
+    @RequestMapping(
+            value = "/api/profiles/{id}",
+            method = RequestMethod.PATCH,
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Callable<ResponseEntity<Profile>> patchProfile(@PathVariable("id") Long id,
+                                                          @RequestBody Map<String, Object> patch,
+                                                          @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return () -> {
+            LOGGER.debug("> patchProfile id:{}", id);
+
+            Integer version = ifMatchVersion(ifMatch, () -> profileService.findOne(id));
+
+            Profile updatedProfile = profileService.patch(id, patch, version);
+
+            LOGGER.debug("< patchProfile id:{}", id);
+            return okWithETag(updatedProfile);
+        };
     }
 
     /**
@@ -153,24 +408,34 @@ public class ProfileController extends BaseController {
      * If deleted successfully, the service returns an empty response body with
      * HTTP status 204.
      * <p/>
+     * If an If-Match header is supplied and does not hold the ETag of the
+     * current Profile, or the Profile is modified before the change is written,
+     * the service returns HTTP status 412.
+     * <p/>
      * If not deleted successfully, the service returns an empty response body
      * with HTTP status 500.
      *
-     * @param id A Long URL path variable containing the Profile primary key
-     *           identifier.
-     * @return A ResponseEntity with an empty response body and a HTTP status
+     * @param id      A Long URL path variable containing the Profile primary key
+     *                identifier.
+     * @param ifMatch The optional If-Match header value.
+     * @return A Callable of a ResponseEntity with an empty response body and a HTTP status
      * code as described in the method comment.
      */
     @RequestMapping(
             value = "/api/profiles/{id}",
             method = RequestMethod.DELETE)
-    public ResponseEntity<Profile> deleteProfile(@PathVariable("id") Long id) {
-        LOGGER.info("> deleteProfile id:{}", id);
+    public Callable<ResponseEntity<Profile>> deleteProfile(@PathVariable("id") Long id,
+                                                           @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return () -> {
+            LOGGER.debug("> deleteProfile id:{}", id);
+
+            Integer version = ifMatchVersion(ifMatch, () -> profileService.findOne(id));
 
-        profileService.delete(id);
+            profileService.delete(id, version);
 
-        LOGGER.info("< deleteProfile id:{}", id);
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            LOGGER.debug("< deleteProfile id:{}", id);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        };
     }
 
 }
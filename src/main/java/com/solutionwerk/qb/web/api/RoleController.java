@@ -1,7 +1,7 @@
 package com.solutionwerk.qb.web.api;
 
 import com.solutionwerk.qb.model.Role;
-import com.solutionwerk.qb.repository.RoleRepository;
+import com.solutionwerk.qb.service.RoleService;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -12,16 +12,12 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Collection;
+import java.util.concurrent.Callable;
 
 /**
  * The RoleController class is a RESTful web service controller. The
  * <code>@RestController</code> annotation informs Spring that each
  * <code>@RequestMapping</code> method returns a <code>@ResponseBody</code>.
- * <p/>
- * Note: This controller class was created for demonstration and testing
- * purposes. Typically, a Repository is not wired directly into a Controller,
- * but rather into a Service component which encapsulates the Repository
- * behaviors.
  *
  * @author Piyush Ramavat
  */
@@ -29,26 +25,28 @@ import java.util.Collection;
 public class RoleController extends BaseController {
 
     /**
-     * The Spring Data JPA Repository for the Role entity model class.
+     * The RoleService business service.
      */
     @Autowired
-    private RoleRepository roleRepository;
+    private RoleService roleService;
 
     /**
      * Web service endpoint to fetch all Role entities. The service returns the
      * collection of entities as JSON.
      *
-     * @return A ResponseEntity containing a collection of Role objects.
+     * @return A Callable of a ResponseEntity containing a collection of Role objects.
      */
     @RequestMapping(
             value = "/api/roles",
             method = RequestMethod.GET,
             produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Collection<Role>> getRoles() {
+    public Callable<ResponseEntity<Collection<Role>>> getRoles() {
+        return () -> {
 
-        Collection<Role> roles = roleRepository.findAllEffective(new DateTime());
+            Collection<Role> roles = roleService.findAllEffective(new DateTime());
 
-        return new ResponseEntity<>(roles, HttpStatus.OK);
+            return new ResponseEntity<>(roles, HttpStatus.OK);
+        };
     }
 
 }
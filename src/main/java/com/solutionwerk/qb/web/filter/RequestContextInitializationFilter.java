@@ -1,8 +1,6 @@
 package com.solutionwerk.qb.web.filter;
 
 import com.solutionwerk.qb.util.RequestContext;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -25,19 +23,11 @@ import java.io.IOException;
 @Order(Ordered.HIGHEST_PRECEDENCE)
 public class RequestContextInitializationFilter extends GenericFilterBean {
 
-    /**
-     * The Logger for this class.
-     */
-    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
-
     @Override
     public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain) throws IOException, ServletException {
-        LOGGER.info("> doFilter");
-
         RequestContext.init();
 
         chain.doFilter(req, resp);
-        LOGGER.info("< doFilter");
     }
 
 }
\ No newline at end of file
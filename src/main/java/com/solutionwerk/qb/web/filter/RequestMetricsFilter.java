@@ -0,0 +1,102 @@
+package com.solutionwerk.qb.web.filter;
+
+import com.solutionwerk.qb.web.metrics.RequestMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RequestMetricsFilter measures every web request, including the time
+ * spent in the security filters, and records it in the RequestMetrics of the
+ * handler named by the RequestMetricsInterceptor. Asynchronous requests are
+ * recorded when they complete.
+ * <p/>
+ * A sample of requests, <code>qb.metrics.trace-sample-rate</code>, is traced
+ * with a single DEBUG line holding the method, URI, handler, status and
+ * latency.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    /**
+     * The request attribute holding the RequestMetrics.Recorder of the handler.
+     */
+    public static final String RECORDER_ATTRIBUTE = RequestMetricsFilter.class.getName() + ".RECORDER";
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private RequestMetrics requestMetrics;
+
+    @Value("${qb.metrics.trace-sample-rate:0.01}")
+    private double traceSampleRate;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) throws IOException {
+                        record(request, response.getStatus(), start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) throws IOException {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) throws IOException {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) throws IOException {
+                    }
+                });
+            } else {
+                // An exception leaving the chain becomes a 500 response
+                record(request, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(), start);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, int status, long start) {
+        long nanos = System.nanoTime() - start;
+        RequestMetrics.Recorder recorder = (RequestMetrics.Recorder) request.getAttribute(RECORDER_ATTRIBUTE);
+        boolean mapped = recorder != null;
+        if (!mapped) {
+            recorder = requestMetrics.recorder(RequestMetrics.UNMAPPED);
+        }
+        recorder.finished(status, nanos, mapped);
+
+        if (LOGGER.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < traceSampleRate) {
+            LOGGER.debug("{} {} handler:{} status:{} {}ms", request.getMethod(), request.getRequestURI(),
+                    recorder.getHandler(), status, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.solutionwerk.qb.web.interceptors;
+
+import com.solutionwerk.qb.web.ratelimit.RateLimitCost;
+import com.solutionwerk.qb.web.ratelimit.RateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Charges each authenticated API request to the rate limits of its OAuth
+ * client and user before the handler runs. The cost of a request is the
+ * {@link RateLimitCost} of its handler method, or one token. A request over
+ * either limit is refused with a RateLimitExceededException, which the
+ * controller answers with HTTP status 429.
+ * <p/>
+ * Registered ahead of the ApiInterceptor, and after authentication by the
+ * Spring Security filter chain.
+ */
+@Component
+public class RateLimitInterceptor extends HandlerInterceptorAdapter {
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // Also invoked when an asynchronous request is dispatched again
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return true;
+        }
+
+        String clientId = null;
+        String username = authentication.getName();
+        if (authentication instanceof OAuth2Authentication) {
+            OAuth2Authentication oAuth2Authentication = (OAuth2Authentication) authentication;
+            clientId = oAuth2Authentication.getOAuth2Request().getClientId();
+            if (oAuth2Authentication.isClientOnly()) {
+                username = null;
+            }
+        }
+
+        rateLimiter.acquire(clientId, username, cost(handler));
+        return true;
+    }
+
+    private static int cost(Object handler) {
+        if (handler instanceof HandlerMethod) {
+            RateLimitCost cost = ((HandlerMethod) handler).getMethodAnnotation(RateLimitCost.class);
+            if (cost != null) {
+                return cost.value();
+            }
+        }
+        return 1;
+    }
+}
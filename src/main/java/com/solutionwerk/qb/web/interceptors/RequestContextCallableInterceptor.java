@@ -0,0 +1,51 @@
+package com.solutionwerk.qb.web.interceptors;
+
+import com.solutionwerk.qb.util.RequestContext;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptorAdapter;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Propagates the RequestContext of a request to the thread executing its
+ * asynchronous handler. The username set on the container thread by the
+ * ApiInterceptor is captured when the handler returns its Callable, set on the
+ * executor thread before the Callable is invoked and removed afterwards, so a
+ * pooled thread never carries the username of a previous request.
+ * <p/>
+ * When the Callable is invoked on the container thread itself, that thread's
+ * RequestContext is restored afterwards.
+ */
+public class RequestContextCallableInterceptor extends CallableProcessingInterceptorAdapter {
+
+    private static final String USERNAME_ATTRIBUTE = RequestContextCallableInterceptor.class.getName() + ".USERNAME";
+
+    private static final String PREVIOUS_USERNAME_ATTRIBUTE = RequestContextCallableInterceptor.class.getName()
+            + ".PREVIOUS_USERNAME";
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) throws Exception {
+        String username = RequestContext.getUsername();
+        if (username != null) {
+            request.setAttribute(USERNAME_ATTRIBUTE, username, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) throws Exception {
+        String previous = RequestContext.getUsername();
+        if (previous != null) {
+            request.setAttribute(PREVIOUS_USERNAME_ATTRIBUTE, previous, RequestAttributes.SCOPE_REQUEST);
+        }
+        RequestContext.init();
+        RequestContext.setUsername((String) request.getAttribute(USERNAME_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) throws Exception {
+        RequestContext.init();
+        RequestContext.setUsername((String) request.getAttribute(PREVIOUS_USERNAME_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST));
+    }
+}
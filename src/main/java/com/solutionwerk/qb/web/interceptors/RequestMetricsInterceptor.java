@@ -0,0 +1,43 @@
+package com.solutionwerk.qb.web.interceptors;
+
+import com.solutionwerk.qb.web.filter.RequestMetricsFilter;
+import com.solutionwerk.qb.web.metrics.RequestMetrics;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Names the handler of each request for the RequestMetricsFilter and counts
+ * the request as in flight for that handler. Registered as a
+ * <code>MappedInterceptor</code> bean so that every handler mapping, including
+ * the OAuth2 framework endpoints, applies it.
+ */
+public class RequestMetricsInterceptor extends HandlerInterceptorAdapter {
+
+    private final RequestMetrics requestMetrics;
+
+    public RequestMetricsInterceptor(RequestMetrics requestMetrics) {
+        this.requestMetrics = requestMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // Also invoked when an asynchronous request is dispatched again
+        if (request.getAttribute(RequestMetricsFilter.RECORDER_ATTRIBUTE) == null) {
+            RequestMetrics.Recorder recorder = requestMetrics.recorder(name(handler));
+            recorder.started();
+            request.setAttribute(RequestMetricsFilter.RECORDER_ATTRIBUTE, recorder);
+        }
+        return true;
+    }
+
+    private static String name(Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            return handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        }
+        return handler.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,107 @@
+package com.solutionwerk.qb.web.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in microseconds. Each power of two is
+ * divided into four buckets, so a percentile read from the histogram is at
+ * most 25% above the true value. Recording is a few atomic increments and
+ * never blocks; reads see a close, not an exact, snapshot while recording
+ * continues.
+ * <p/>
+ * Latencies beyond 2^36 microseconds (about 19 hours) are recorded in the
+ * last bucket.
+ */
+public class LatencyHistogram {
+
+    private static final int MAX_EXPONENT = 36;
+
+    private static final int BUCKETS = (MAX_EXPONENT - 1) * 4 + 4;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Records one latency.
+     *
+     * @param duration The latency.
+     * @param unit     The TimeUnit of the latency.
+     */
+    public void record(long duration, TimeUnit unit) {
+        long micros = Math.max(0, unit.toMicros(duration));
+        buckets.incrementAndGet(index(micros));
+        count.increment();
+        sum.add(micros);
+        max.accumulate(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (n * 1000.0);
+    }
+
+    public double getMaxMillis() {
+        return max.get() / 1000.0;
+    }
+
+    /**
+     * Returns the latency below which the given fraction of the recorded
+     * latencies lie, as the upper bound of the bucket containing it.
+     *
+     * @param quantile A fraction between 0 and 1, e.g. 0.99.
+     * @return The latency in milliseconds, or 0 if none were recorded.
+     */
+    public double getPercentileMillis(double quantile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get()) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    static int index(long micros) {
+        if (micros < 4) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - 2)) & 3;
+        return (exponent - 1) * 4 + subBucket;
+    }
+
+    static long upperBound(int index) {
+        if (index < 4) {
+            return index;
+        }
+        int exponent = index / 4 + 1;
+        int subBucket = index % 4;
+        return ((4L + subBucket + 1) << (exponent - 2)) - 1;
+    }
+}
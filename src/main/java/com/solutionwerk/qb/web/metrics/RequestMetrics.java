@@ -0,0 +1,121 @@
+package com.solutionwerk.qb.web.metrics;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency, response status and concurrency of web requests per
+ * handler and exports them through the actuator <code>/metrics</code>
+ * endpoint. A handler is named <code>{Controller}.{method}</code>, e.g.
+ * <code>ProfileController.getProfile</code> or
+ * <code>TokenEndpoint.postAccessToken</code>; requests rejected before
+ * reaching a handler are recorded as <code>unmapped</code>. For each handler
+ * the following metrics are published:
+ * <ul>
+ * <li>http.{handler}.count - The number of completed requests
+ * <li>http.{handler}.in-flight - The number of requests being processed
+ * <li>http.{handler}.status.{1xx..5xx} - The number of responses per status class
+ * <li>http.{handler}.latency.{mean,p50,p95,p99,max}.millis - The request latency
+ * </ul>
+ * Values are cumulative since the application started.
+ */
+@Component
+public class RequestMetrics implements PublicMetrics {
+
+    public static final String UNMAPPED = "unmapped";
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the Recorder of the named handler, creating it on first use.
+     *
+     * @param handler The handler name.
+     * @return A Recorder.
+     */
+    public Recorder recorder(String handler) {
+        Recorder recorder = recorders.get(handler);
+        return recorder != null ? recorder : recorders.computeIfAbsent(handler, Recorder::new);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            String prefix = "http." + entry.getKey() + ".";
+            Recorder recorder = entry.getValue();
+            LatencyHistogram latency = recorder.latency;
+            metrics.add(new Metric<>(prefix + "count", latency.getCount()));
+            metrics.add(new Metric<>(prefix + "in-flight", recorder.inFlight.sum()));
+            for (int i = 0; i < recorder.statuses.length; i++) {
+                long count = recorder.statuses[i].sum();
+                if (count > 0) {
+                    metrics.add(new Metric<>(prefix + "status." + (i + 1) + "xx", count));
+                }
+            }
+            metrics.add(new Metric<>(prefix + "latency.mean.millis", latency.getMeanMillis()));
+            metrics.add(new Metric<>(prefix + "latency.p50.millis", latency.getPercentileMillis(0.50)));
+            metrics.add(new Metric<>(prefix + "latency.p95.millis", latency.getPercentileMillis(0.95)));
+            metrics.add(new Metric<>(prefix + "latency.p99.millis", latency.getPercentileMillis(0.99)));
+            metrics.add(new Metric<>(prefix + "latency.max.millis", latency.getMaxMillis()));
+        }
+        return metrics;
+    }
+
+    /**
+     * The lock-free counters of one handler.
+     */
+    public static class Recorder {
+
+        private final String handler;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final LongAdder inFlight = new LongAdder();
+
+        private final LongAdder[] statuses = new LongAdder[5];
+
+        Recorder(String handler) {
+            this.handler = handler;
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = new LongAdder();
+            }
+        }
+
+        public String getHandler() {
+            return handler;
+        }
+
+        /**
+         * Marks a request as being processed by the handler.
+         */
+        public void started() {
+            inFlight.increment();
+        }
+
+        /**
+         * Records a completed request.
+         *
+         * @param status   The HTTP response status.
+         * @param nanos    The request latency in nanoseconds.
+         * @param inFlight Whether {@link #started()} was called for the request.
+         */
+        public void finished(int status, long nanos, boolean inFlight) {
+            if (inFlight) {
+                this.inFlight.decrement();
+            }
+            int statusClass = status / 100;
+            if (statusClass >= 1 && statusClass <= 5) {
+                statuses[statusClass - 1].increment();
+            }
+            latency.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
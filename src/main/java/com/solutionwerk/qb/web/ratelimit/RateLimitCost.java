@@ -0,0 +1,23 @@
+package com.solutionwerk.qb.web.ratelimit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The number of rate limit tokens taken by a request to the annotated
+ * handler method. Handlers without the annotation take one token; handlers
+ * reading many entities should cost more.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RateLimitCost {
+
+    /**
+     * @return The number of tokens taken per request.
+     */
+    int value();
+}
@@ -0,0 +1,23 @@
+package com.solutionwerk.qb.web.ratelimit;
+
+/**
+ * Thrown when a request exceeds the rate limit of its OAuth client or user.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return The seconds after which the request may be retried.
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,156 @@
+package com.solutionwerk.qb.web.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the API requests of each OAuth client and each user with a
+ * {@link TokenBucket} per client id and per username. A request takes its
+ * cost in tokens from both buckets and is refused if either holds too few.
+ * <p/>
+ * Buckets are created on first use and discarded by a sweep every
+ * <code>qb.ratelimit.idle-timeout</code> milliseconds once they have been
+ * full for that long; a full bucket holds no state worth keeping.
+ * <p/>
+ * The following metrics are published:
+ * <ul>
+ * <li>ratelimit.rejected - The requests refused since the application started
+ * <li>ratelimit.{client,user}.buckets - The buckets held
+ * <li>ratelimit.{client,user}.{key}.rejected - The requests of a client id or
+ * username refused since its bucket was created, for buckets which refused any
+ * </ul>
+ */
+@Component
+public class RateLimiter implements PublicMetrics {
+
+    /**
+     * The Logger for this class.
+     */
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    @Value("${qb.ratelimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${qb.ratelimit.client.capacity:600}")
+    private int clientCapacity;
+
+    @Value("${qb.ratelimit.client.rate:100}")
+    private double clientRate;
+
+    @Value("${qb.ratelimit.user.capacity:200}")
+    private int userCapacity;
+
+    @Value("${qb.ratelimit.user.rate:20}")
+    private double userRate;
+
+    @Value("${qb.ratelimit.idle-timeout:600000}")
+    private long idleTimeout;
+
+    private final ConcurrentMap<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Takes the cost of a request from the buckets of its client and user.
+     *
+     * @param clientId The OAuth client id, or <code>null</code> if none.
+     * @param username The username, or <code>null</code> if the client acts
+     *                 on its own behalf.
+     * @param cost     The number of tokens taken.
+     * @throws RateLimitExceededException Thrown when either bucket holds fewer
+     *                                    than <code>cost</code> tokens.
+     */
+    public void acquire(String clientId, String username, int cost) {
+        if (!enabled) {
+            return;
+        }
+
+        TokenBucket clientBucket = null;
+        if (clientId != null) {
+            clientBucket = bucket(clientBuckets, clientId, clientCapacity, clientRate);
+            long wait = clientBucket.tryConsume(cost);
+            if (wait > 0) {
+                reject("client", clientId, wait);
+            }
+        }
+        if (username != null) {
+            long wait = bucket(userBuckets, username, userCapacity, userRate).tryConsume(cost);
+            if (wait > 0) {
+                if (clientBucket != null) {
+                    clientBucket.refund(cost);
+                }
+                reject("user", username, wait);
+            }
+        }
+    }
+
+    private static TokenBucket bucket(ConcurrentMap<String, TokenBucket> buckets, String key, int capacity,
+                                      double rate) {
+        TokenBucket bucket = buckets.get(key);
+        return bucket != null ? bucket : buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, rate));
+    }
+
+    private void reject(String type, String key, long waitNanos) {
+        rejected.increment();
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        LOGGER.debug("Rate limit of {} {} exceeded; retry after {} s.", type, key, retryAfter);
+        throw new RateLimitExceededException("Rate limit exceeded.", retryAfter);
+    }
+
+    /**
+     * Discards the buckets which have been full for the idle timeout.
+     */
+    @Scheduled(
+            initialDelayString = "${qb.ratelimit.idle-timeout:600000}",
+            fixedDelayString = "${qb.ratelimit.idle-timeout:600000}")
+    public void evictIdleBuckets() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        int evicted = evictIdle(clientBuckets, idleNanos) + evictIdle(userBuckets, idleNanos);
+        LOGGER.debug("evictIdleBuckets evicted:{}", evicted);
+    }
+
+    private static int evictIdle(ConcurrentMap<String, TokenBucket> buckets, long idleNanos) {
+        int evicted = 0;
+        for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+            if (entry.getValue().isIdle(idleNanos) && buckets.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("ratelimit.rejected", rejected.sum()));
+        addMetrics(metrics, "ratelimit.client.", clientBuckets);
+        addMetrics(metrics, "ratelimit.user.", userBuckets);
+        return metrics;
+    }
+
+    private static void addMetrics(Collection<Metric<?>> metrics, String prefix,
+                                   ConcurrentMap<String, TokenBucket> buckets) {
+        metrics.add(new Metric<>(prefix + "buckets", buckets.size()));
+        for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+            long count = entry.getValue().getRejected();
+            if (count > 0) {
+                metrics.add(new Metric<>(prefix + entry.getKey() + ".rejected", count));
+            }
+        }
+    }
+}
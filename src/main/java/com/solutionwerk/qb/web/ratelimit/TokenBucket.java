@@ -0,0 +1,89 @@
+package com.solutionwerk.qb.web.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free token bucket holding up to <code>capacity</code> tokens and
+ * refilled at <code>rate</code> tokens per second.
+ * <p/>
+ * The bucket is kept as a single theoretical arrival time, the instant at
+ * which it would be full again (the generic cell rate algorithm). Taking
+ * tokens moves that instant forward by the refill time of the tokens, and is
+ * refused if it would move further than the refill time of a full bucket
+ * ahead of now. Each attempt is one compare-and-set of a long.
+ */
+public class TokenBucket {
+
+    /**
+     * The nanoseconds to refill one token.
+     */
+    private final double nanosPerToken;
+
+    /**
+     * The nanoseconds to refill an empty bucket.
+     */
+    private final long tolerance;
+
+    private final AtomicLong fullAt;
+
+    private final LongAdder rejected = new LongAdder();
+
+    public TokenBucket(int capacity, double rate) {
+        this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / rate;
+        this.tolerance = (long) (capacity * nanosPerToken);
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes tokens from the bucket if it holds enough.
+     *
+     * @param tokens The number of tokens to take.
+     * @return 0 if the tokens were taken, otherwise the nanoseconds until the
+     * bucket will hold them.
+     */
+    public long tryConsume(int tokens) {
+        long increment = (long) (tokens * nanosPerToken);
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + increment;
+            long wait = next - now - tolerance;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns tokens taken by {@link #tryConsume(int)} which were not used.
+     *
+     * @param tokens The number of tokens to return.
+     */
+    public void refund(int tokens) {
+        fullAt.addAndGet(-(long) (tokens * nanosPerToken));
+    }
+
+    /**
+     * Whether the bucket has been full for at least the idle time, so that
+     * discarding it loses no state.
+     *
+     * @param idleNanos The idle time in nanoseconds.
+     * @return <code>true</code> if the bucket is idle.
+     */
+    public boolean isIdle(long idleNanos) {
+        return System.nanoTime() - fullAt.get() >= idleNanos;
+    }
+
+    /**
+     * @return The number of refused attempts.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -3,28 +3,36 @@
  * Create the database schema for the application.
  */
 
+DROP TABLE AccountProfile IF EXISTS;
+DROP TABLE AccountRole IF EXISTS;
+DROP TABLE Account IF EXISTS;
+DROP TABLE Role IF EXISTS;
 DROP TABLE Profile IF EXISTS;
+DROP TABLE IdSequence IF EXISTS;
+
+CREATE TABLE IdSequence (
+  name VARCHAR(100) NOT NULL,
+  nextValue BIGINT NOT NULL,
+  PRIMARY KEY (name)
+);
 
 CREATE TABLE Profile (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) NOT NULL,
+  id BIGINT NOT NULL,
   referenceId VARCHAR(255) NOT NULL,
-  text VARCHAR(100) NOT NULL,
+  name VARCHAR(100) NOT NULL,
+  email VARCHAR(100) DEFAULT NULL,
+  mobile VARCHAR(20) DEFAULT NULL,
   version INT NOT NULL,
   createdBy VARCHAR(100) NOT NULL,
   createdAt DATETIME NOT NULL,
   updatedBy VARCHAR(100) DEFAULT NULL,
   updatedAt DATETIME DEFAULT NULL,
-  PRIMARY KEY(id),
+  PRIMARY KEY (id),
   CONSTRAINT UQ_Profile_ReferenceId UNIQUE (referenceId)
 );
 
-
-DROP TABLE AccountRole IF EXISTS;
-DROP TABLE Account IF EXISTS;
-DROP TABLE Role IF EXISTS;
-
 CREATE TABLE Account (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) NOT NULL,
+  id BIGINT NOT NULL,
   referenceId VARCHAR(255) NOT NULL,
   username VARCHAR(100) NOT NULL,
   password VARCHAR(200) NOT NULL,
@@ -58,6 +66,41 @@ CREATE TABLE AccountRole (
   accountId BIGINT NOT NULL,
   roleId BIGINT NOT NULL,
   PRIMARY KEY (accountId, roleId),
-  CONSTRAINT FK_AccountRole_AccountId FOREIGN KEY (accountId) REFERENCES Account (id),
-  CONSTRAINT FK_AccountRole_RoleId FOREIGN KEY (roleId) REFERENCES Role (id)
+  CONSTRAINT FK_AccountRole_AccountId FOREIGN KEY (accountId) REFERENCES Account (id) ON DELETE CASCADE,
+  CONSTRAINT FK_AccountRole_RoleId FOREIGN KEY (roleId) REFERENCES Role (id) ON DELETE CASCADE
+);
+
+CREATE TABLE AccountProfile (
+  accountId BIGINT NOT NULL,
+  profileId BIGINT NOT NULL,
+  PRIMARY KEY (accountId, profileId),
+  CONSTRAINT FK_AccountProfile_AccountId FOREIGN KEY (accountId) REFERENCES Account (id) ON DELETE CASCADE,
+  CONSTRAINT FK_AccountProfile_ProfileId FOREIGN KEY (profileId) REFERENCES Profile (id) ON DELETE CASCADE
 );
+
+/* JdbcTokenStore */
+DROP TABLE oauth_access_token IF EXISTS;
+DROP TABLE oauth_refresh_token IF EXISTS;
+
+CREATE TABLE oauth_access_token (
+  token_id VARCHAR(255),
+  token LONGVARBINARY,
+  authentication_id VARCHAR(255) PRIMARY KEY,
+  user_name VARCHAR(255),
+  client_id VARCHAR(255),
+  authentication LONGVARBINARY,
+  refresh_token VARCHAR(255)
+);
+
+CREATE TABLE oauth_refresh_token (
+  token_id VARCHAR(255),
+  token LONGVARBINARY,
+  authentication LONGVARBINARY
+);
+
+/* Lookups of the JdbcTokenStore, and the keyset scans of the TokenPurger */
+CREATE INDEX IX_oauth_access_token_token_id ON oauth_access_token (token_id);
+CREATE INDEX IX_oauth_access_token_client_user ON oauth_access_token (client_id, user_name);
+CREATE INDEX IX_oauth_access_token_user_name ON oauth_access_token (user_name);
+CREATE INDEX IX_oauth_access_token_refresh_token ON oauth_access_token (refresh_token);
+CREATE INDEX IX_oauth_refresh_token_token_id ON oauth_refresh_token (token_id);
@@ -2,10 +2,20 @@
  * MySQL script.
  * Create the database schema for the application.
  */
+# DROP TABLE IF EXISTS `IdSequence`;
+
+CREATE TABLE IF NOT EXISTS `IdSequence` (
+  `name`      VARCHAR(100)        NOT NULL,
+  `nextValue` BIGINT(20) UNSIGNED NOT NULL,
+  PRIMARY KEY (`name`)
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8;
+
 # DROP TABLE IF EXISTS `Profile`;
 
 CREATE TABLE IF NOT EXISTS `Profile` (
-  `id`          BIGINT(20) UNSIGNED NOT NULL AUTO_INCREMENT,
+  `id`          BIGINT(20) UNSIGNED NOT NULL,
   `referenceId` VARCHAR(255)        NOT NULL,
   `name`        VARCHAR(100)        NOT NULL,
   `email`       VARCHAR(100),
@@ -27,7 +37,7 @@ CREATE TABLE IF NOT EXISTS `Profile` (
 # DROP TABLE IF EXISTS `Role`;
 
 CREATE TABLE IF NOT EXISTS `Account` (
-  `id`                 BIGINT(20) UNSIGNED NOT NULL AUTO_INCREMENT,
+  `id`                 BIGINT(20) UNSIGNED NOT NULL,
   `referenceId`        VARCHAR(255)        NOT NULL,
   `username`           VARCHAR(100)        NOT NULL,
   `password`           VARCHAR(200)        NOT NULL,
@@ -108,6 +118,8 @@ CREATE TABLE IF NOT EXISTS oauth_client_token (
   client_id         VARCHAR(255)
 );
 
+-- Indexes serve the lookups of the JdbcTokenStore and the keyset scans of the TokenPurger;
+-- tables created before they were added need the equivalent CREATE INDEX statements
 CREATE TABLE IF NOT EXISTS oauth_access_token (
   token_id          VARCHAR(255),
   token             LONG VARBINARY,
@@ -115,13 +127,18 @@ CREATE TABLE IF NOT EXISTS oauth_access_token (
   user_name         VARCHAR(255),
   client_id         VARCHAR(255),
   authentication    LONG VARBINARY,
-  refresh_token     VARCHAR(255)
+  refresh_token     VARCHAR(255),
+  INDEX `IX_oauth_access_token_token_id` (`token_id`),
+  INDEX `IX_oauth_access_token_client_user` (`client_id`, `user_name`),
+  INDEX `IX_oauth_access_token_user_name` (`user_name`),
+  INDEX `IX_oauth_access_token_refresh_token` (`refresh_token`)
 );
 
 CREATE TABLE IF NOT EXISTS oauth_refresh_token (
   token_id       VARCHAR(255),
   token          LONG VARBINARY,
-  authentication LONG VARBINARY
+  authentication LONG VARBINARY,
+  INDEX `IX_oauth_refresh_token_token_id` (`token_id`)
 );
 
 CREATE TABLE IF NOT EXISTS oauth_code (
@@ -7,16 +7,21 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 import com.solutionwerk.qb.web.api.BaseController;
+import com.solutionwerk.qb.web.filter.RequestMetricsFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.web.FilterChainProxy;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.util.Base64Utils;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.io.IOException;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -39,6 +44,9 @@ public abstract class AbstractControllerTest extends AbstractTest {
     @Autowired
     private FilterChainProxy springSecurityFilterChain;
 
+    @Autowired
+    private RequestMetricsFilter requestMetricsFilter;
+
     /**
      * Prepares the test class for execution of web tests. Builds a MockMvc
      * instance. Call this method from the concrete JUnit test class in the
@@ -46,7 +54,8 @@ public abstract class AbstractControllerTest extends AbstractTest {
      */
     protected void setUp() {
         super.setUp();
-        mvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).addFilter(springSecurityFilterChain).build();
+        mvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .addFilters(requestMetricsFilter, springSecurityFilterChain).build();
     }
 
     /**
@@ -60,6 +69,24 @@ public abstract class AbstractControllerTest extends AbstractTest {
         mvc = MockMvcBuilders.standaloneSetup(controller).build();
     }
 
+    /**
+     * Performs a request with the MockMvc instance. When the handler returns
+     * a <code>Callable</code>, waits for its result and performs the
+     * asynchronous dispatch which writes the response.
+     *
+     * @param requestBuilder The RequestBuilder of the request.
+     * @return The ResultActions of the completed request.
+     * @throws Exception Thrown if an error occurs while performing the request.
+     */
+    protected ResultActions perform(RequestBuilder requestBuilder) throws Exception {
+        ResultActions resultActions = mvc.perform(requestBuilder);
+        MvcResult result = resultActions.andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mvc.perform(asyncDispatch(result));
+        }
+        return resultActions;
+    }
+
     /**
      * Maps an Object into a JSON String. Uses a Jackson ObjectMapper.
      *
@@ -125,6 +152,6 @@ public abstract class AbstractControllerTest extends AbstractTest {
 //                .andExpect(jsonPath("$.refresh_token", is(notNullValue())))
 //                .andExpect(jsonPath("$.expires_in", is(greaterThan(4000))))
 //                .andExpect(jsonPath("$.scope", is(equalTo("read write"))))
-        return content.substring(17, 53);
+        return new ObjectMapper().readTree(content).get("access_token").asText();
     }
 }
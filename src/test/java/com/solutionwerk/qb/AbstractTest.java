@@ -5,18 +5,23 @@ import org.junit.runner.RunWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 
 /**
  * The AbstractTest class is the parent of all JUnit test classes. This class
  * configures the test ApplicationContext and test runner environment.
+ * <p/>
+ * Asynchronous handlers run on the test thread, within the transaction of
+ * transactional tests. API rate limits are disabled.
  *
  * @author Piyush Ramavat
  */
 @RunWith(SpringJUnit4ClassRunner.class)
 @SpringApplicationConfiguration(classes = Application.class)
 @WebAppConfiguration
+@TestPropertySource(properties = {"qb.async.pool-size=0", "qb.ratelimit.enabled=false"})
 public abstract class AbstractTest {
 
     /**
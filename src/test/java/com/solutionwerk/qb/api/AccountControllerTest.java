@@ -0,0 +1,69 @@
+package com.solutionwerk.qb.api;
+
+import com.solutionwerk.qb.AbstractControllerTest;
+import com.solutionwerk.qb.service.AccountService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Unit tests for the AccountController using Spring MVC Mocks.
+ */
+@Transactional
+public class AccountControllerTest extends AbstractControllerTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        accountService.evictCache();
+    }
+
+    @After
+    public void tearDown() {
+        // The patched Account was put in the cache; the patch is rolled back
+        accountService.evictCache();
+    }
+
+    @Test
+    public void testPatchAccount() throws Exception {
+        String uri = "/api/accounts/{id}";
+        Long id = 3L;
+
+        String accessToken = getAccessToken("qbAdmin", "QuoteBuilder@1");
+
+        MvcResult result = perform(MockMvcRequestBuilders.patch(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content("{\"locked\":true}"))
+                .andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200, result.getResponse().getStatus());
+        Assert.assertTrue("failure - expected account locked", accountService.findOne(id).isLocked());
+    }
+
+    @Test
+    public void testPatchAccountUserRole() throws Exception {
+        String uri = "/api/accounts/{id}";
+        Long id = 2L;
+
+        String accessToken = getAccessToken("qbUser", "qb@123");
+
+        MvcResult result = perform(MockMvcRequestBuilders.patch(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content("{\"locked\":true}"))
+                .andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 403", 403, result.getResponse().getStatus());
+        Assert.assertFalse("failure - expected account not locked", accountService.findOne(id).isLocked());
+    }
+}
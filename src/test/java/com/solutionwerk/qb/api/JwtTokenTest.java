@@ -0,0 +1,96 @@
+package com.solutionwerk.qb.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solutionwerk.qb.AbstractControllerTest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.util.Base64Utils;
+
+/**
+ * Tests the OAuth2 endpoints and the resource server with self-contained JWT
+ * access tokens.
+ */
+@TestPropertySource(properties = {"qb.oauth2.token-mode=jwt", "qb.oauth2.jwt.signing-key=jwt-test-key"})
+public class JwtTokenTest extends AbstractControllerTest {
+
+    private static final String CLIENT_AUTHORIZATION = "Basic "
+            + new String(Base64Utils.encode("qbClientId:123456".getBytes()));
+
+    @Before
+    public void setUp() {
+        super.setUp();
+    }
+
+    private MvcResult token(MockHttpServletRequestBuilder request) throws Exception {
+        return mvc.perform(request
+                .header("Authorization", CLIENT_AUTHORIZATION)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED))
+                .andReturn();
+    }
+
+    private JsonNode passwordGrant() throws Exception {
+        MvcResult result = token(MockMvcRequestBuilders.post("/oauth/token")
+                .param("grant_type", "password")
+                .param("username", "qbAdmin")
+                .param("password", "QuoteBuilder@1"));
+        Assert.assertEquals("failure - expected HTTP status 200", 200, result.getResponse().getStatus());
+        return new ObjectMapper().readTree(result.getResponse().getContentAsString());
+    }
+
+    private MvcResult refreshGrant(String refreshToken) throws Exception {
+        return token(MockMvcRequestBuilders.post("/oauth/token")
+                .param("grant_type", "refresh_token")
+                .param("refresh_token", refreshToken));
+    }
+
+    private int getProfile(String accessToken) throws Exception {
+        return perform(MockMvcRequestBuilders.get("/api/profiles/{id}", 1L)
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getStatus();
+    }
+
+    @Test
+    public void testPasswordGrant() throws Exception {
+        JsonNode token = passwordGrant();
+
+        String accessToken = token.get("access_token").asText();
+        Assert.assertEquals("failure - expected a signed JWT", 3, accessToken.split("\\.").length);
+        Assert.assertTrue("failure - expected a refresh token", token.hasNonNull("refresh_token"));
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200, getProfile(accessToken));
+    }
+
+    @Test
+    public void testInvalidAccessToken() throws Exception {
+        String accessToken = passwordGrant().get("access_token").asText();
+
+        Assert.assertEquals("failure - expected HTTP status 401", 401, getProfile(accessToken + "x"));
+    }
+
+    @Test
+    public void testRefreshGrant() throws Exception {
+        String refreshToken = passwordGrant().get("refresh_token").asText();
+
+        MvcResult result = refreshGrant(refreshToken);
+        Assert.assertEquals("failure - expected HTTP status 200", 200, result.getResponse().getStatus());
+
+        JsonNode refreshed = new ObjectMapper().readTree(result.getResponse().getContentAsString());
+        Assert.assertEquals("failure - expected HTTP status 200", 200,
+                getProfile(refreshed.get("access_token").asText()));
+        Assert.assertNotEquals("failure - expected a new refresh token", refreshToken,
+                refreshed.get("refresh_token").asText());
+
+        // The used refresh token was revoked
+        Assert.assertEquals("failure - expected HTTP status 400", 400,
+                refreshGrant(refreshToken).getResponse().getStatus());
+    }
+}
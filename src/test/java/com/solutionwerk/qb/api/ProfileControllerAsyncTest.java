@@ -0,0 +1,67 @@
+package com.solutionwerk.qb.api;
+
+import com.solutionwerk.qb.AbstractControllerTest;
+import com.solutionwerk.qb.model.Profile;
+import com.solutionwerk.qb.service.ProfileService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+/**
+ * Tests the ProfileController handlers on a pool of executor threads rather
+ * than on the test thread. The tests are not transactional; entities created
+ * are deleted by the test.
+ */
+@TestPropertySource(properties = "qb.async.pool-size=2")
+public class ProfileControllerAsyncTest extends AbstractControllerTest {
+
+    @Autowired
+    private ProfileService profileService;
+
+    private String accessToken;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        profileService.evictCache();
+        try {
+            if (accessToken == null) {
+                accessToken = getAccessToken("qbAdmin", "QuoteBuilder@1");
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to get Access Token.");
+        }
+    }
+
+    @Test
+    public void testCreateProfileAuditedAsCaller() throws Exception {
+        Profile profile = new Profile();
+        profile.setName("async");
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/api/profiles")
+                .header("Authorization", "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content(mapToJson(profile)))
+                .andReturn();
+
+        Assert.assertTrue("failure - expected asynchronous handling", result.getRequest().isAsyncStarted());
+
+        result = mvc.perform(asyncDispatch(result)).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 201", 201, result.getResponse().getStatus());
+
+        Profile createdProfile = mapFromJson(result.getResponse().getContentAsString(), Profile.class);
+        try {
+            Assert.assertEquals("failure - expected createdBy of the caller", "qbAdmin", createdProfile.getCreatedBy());
+        } finally {
+            profileService.delete(createdProfile.getId(), null);
+        }
+    }
+}
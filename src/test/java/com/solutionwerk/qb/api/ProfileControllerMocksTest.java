@@ -3,6 +3,7 @@ package com.solutionwerk.qb.api;
 import com.solutionwerk.qb.AbstractControllerTest;
 import com.solutionwerk.qb.model.Profile;
 import com.solutionwerk.qb.service.ProfileService;
+import com.solutionwerk.qb.web.StackTraceLimiter;
 import com.solutionwerk.qb.web.api.ProfileController;
 import org.junit.Assert;
 import org.junit.Before;
@@ -10,7 +11,9 @@ import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.transaction.annotation.Transactional;
@@ -47,6 +50,13 @@ public class ProfileControllerMocksTest extends AbstractControllerTest {
     @InjectMocks
     private ProfileController profileController;
 
+    /**
+     * The application StackTraceLimiter, used by the controller's exception
+     * handler.
+     */
+    @Autowired
+    private StackTraceLimiter stackTraceLimiter;
+
     /**
      * Setup each test method. Initialize Mockito mock and spy objects. Scan for
      * Mockito annotations.
@@ -55,6 +65,7 @@ public class ProfileControllerMocksTest extends AbstractControllerTest {
     public void setUp() {
         // Initialize Mockito annotated components
         MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(profileController, "stackTraceLimiter", stackTraceLimiter);
         // Prepare the Spring MVC Mock components for standalone testing
         setUp(profileController);
     }
@@ -70,7 +81,7 @@ public class ProfileControllerMocksTest extends AbstractControllerTest {
         // Perform the behavior being tested
         String uri = "/api/profiles";
 
-        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri)
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri)
                 .accept(MediaType.APPLICATION_JSON)).andReturn();
 
         // Extract the response status and body
@@ -98,7 +109,7 @@ public class ProfileControllerMocksTest extends AbstractControllerTest {
         // Perform the behavior being tested
         String uri = "/api/profiles/{id}";
 
-        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri, id)
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri, id)
                 .accept(MediaType.APPLICATION_JSON)).andReturn();
 
         // Extract the response status and body
@@ -124,7 +135,7 @@ public class ProfileControllerMocksTest extends AbstractControllerTest {
         // Perform the behavior being tested
         String uri = "/api/profiles/{id}";
 
-        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri, id)
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri, id)
                 .accept(MediaType.APPLICATION_JSON)).andReturn();
 
         // Extract the response status and body
@@ -151,10 +162,9 @@ public class ProfileControllerMocksTest extends AbstractControllerTest {
         String uri = "/api/profiles";
         String inputJson = super.mapToJson(entity);
 
-        MvcResult result = mvc
-                .perform(MockMvcRequestBuilders.post(uri)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .accept(MediaType.APPLICATION_JSON).content(inputJson))
+        MvcResult result = perform(MockMvcRequestBuilders.post(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content(inputJson))
                 .andReturn();
 
         // Extract the response status and body
@@ -183,16 +193,15 @@ public class ProfileControllerMocksTest extends AbstractControllerTest {
         Long id = 1L;
 
         // Stub the ProfileService.update method return value
-        when(profileService.update(any(Profile.class))).thenReturn(entity);
+        when(profileService.update(any(Profile.class), any(Integer.class))).thenReturn(entity);
 
         // Perform the behavior being tested
         String uri = "/api/profiles/{id}";
         String inputJson = super.mapToJson(entity);
 
-        MvcResult result = mvc
-                .perform(MockMvcRequestBuilders.put(uri, id)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .accept(MediaType.APPLICATION_JSON).content(inputJson))
+        MvcResult result = perform(MockMvcRequestBuilders.put(uri, id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content(inputJson))
                 .andReturn();
 
         // Extract the response status and body
@@ -200,7 +209,7 @@ public class ProfileControllerMocksTest extends AbstractControllerTest {
         int status = result.getResponse().getStatus();
 
         // Verify the ProfileService.update method was invoked once
-        verify(profileService, times(1)).update(any(Profile.class));
+        verify(profileService, times(1)).update(any(Profile.class), any(Integer.class));
 
         // Perform standard JUnit assertions on the test results
         Assert.assertEquals("failure - expected HTTP status 200", 200, status);
@@ -221,7 +230,7 @@ public class ProfileControllerMocksTest extends AbstractControllerTest {
         // Perform the behavior being tested
         String uri = "/api/profiles/{id}";
 
-        MvcResult result = mvc.perform(MockMvcRequestBuilders.delete(uri, id))
+        MvcResult result = perform(MockMvcRequestBuilders.delete(uri, id))
                 .andReturn();
 
         // Extract the response status and body
@@ -229,7 +238,7 @@ public class ProfileControllerMocksTest extends AbstractControllerTest {
         int status = result.getResponse().getStatus();
 
         // Verify the ProfileService.delete method was invoked once
-        verify(profileService, times(1)).delete(id);
+        verify(profileService, times(1)).delete(id, null);
 
         // Perform standard JUnit assertions on the test results
         Assert.assertEquals("failure - expected HTTP status 204", 204, status);
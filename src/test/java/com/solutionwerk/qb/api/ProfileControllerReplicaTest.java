@@ -0,0 +1,90 @@
+package com.solutionwerk.qb.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.solutionwerk.qb.AbstractControllerTest;
+import com.solutionwerk.qb.service.ProfileService;
+import com.solutionwerk.qb.util.RequestContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.sql.DataSource;
+
+/**
+ * Tests the routing of ProfileController requests with two in-memory HSQLDB
+ * instances standing in for the primary database and a read replica. The
+ * replica is made to differ from the primary, so the database which served a
+ * request can be told from the response.
+ */
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:hsqldb:mem:routedPrimary",
+        "qb.datasource.replica.url=jdbc:hsqldb:mem:routedReplica",
+        "qb.datasource.replica.username=sa",
+        "qb.datasource.replica.initialize=true",
+        "qb.datasource.read-your-writes-window=0"})
+public class ProfileControllerReplicaTest extends AbstractControllerTest {
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    @Autowired
+    private ProfileService profileService;
+
+    private String accessToken;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        profileService.evictCache();
+        try {
+            if (accessToken == null) {
+                accessToken = getAccessToken("qbAdmin", "QuoteBuilder@1");
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to get Access Token.");
+        }
+        new JdbcTemplate(replica).update("UPDATE Profile SET name = 'replica' WHERE id = 2");
+        // Each request starts without a write, as the request filter ensures
+        RequestContext.init();
+    }
+
+    @Test
+    public void testReadFromReplicaWriteToPrimary() throws Exception {
+        String uri = "/api/profiles/{id}";
+        Long id = 2L;
+
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        Assert.assertEquals("failure - expected read from replica", "replica",
+                mapFromJson(result.getResponse().getContentAsString(), JsonNode.class).get("name").asText());
+
+        // The If-Match check reads from the replica before the write
+        profileService.evictCache();
+        RequestContext.init();
+        result = perform(MockMvcRequestBuilders.patch(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .header("If-Match", result.getResponse().getHeader("ETag"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content("{\"mobile\":\"0123456789\"}")).andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200, result.getResponse().getStatus());
+        Assert.assertEquals("failure - expected write to primary", "0123456789", new JdbcTemplate(primary)
+                .queryForObject("SELECT mobile FROM Profile WHERE id = ?", String.class, id));
+        Assert.assertNull("failure - expected replica unchanged", new JdbcTemplate(replica)
+                .queryForObject("SELECT mobile FROM Profile WHERE id = ?", String.class, id));
+    }
+}
@@ -1,18 +1,25 @@
 package com.solutionwerk.qb.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.solutionwerk.qb.AbstractControllerTest;
 import com.solutionwerk.qb.TestError;
 import com.solutionwerk.qb.model.Profile;
 import com.solutionwerk.qb.service.ProfileService;
+import com.solutionwerk.qb.web.metrics.RequestMetrics;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -32,6 +39,12 @@ public class ProfileControllerTest extends AbstractControllerTest {
     @Autowired
     private ProfileService profileService;
 
+    @Autowired
+    private RequestMetrics requestMetrics;
+
+    @Autowired
+    private CacheManager cacheManager;
+
     private String accessToken;
 
     @Before
@@ -50,7 +63,7 @@ public class ProfileControllerTest extends AbstractControllerTest {
     @Test
     public void getProfilesUnauthorized() throws Exception {
         String uri = "/api/profiles";
-        MvcResult result = mvc.perform(get(uri)
+        MvcResult result = perform(get(uri)
                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isUnauthorized()).andReturn();
 
@@ -68,7 +81,7 @@ public class ProfileControllerTest extends AbstractControllerTest {
 
         String accessToken = getAccessToken("qbUser", "qb@123");
 
-        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri)
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri)
                 .header("Authorization", "Bearer " + accessToken)
                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isForbidden())
@@ -86,7 +99,7 @@ public class ProfileControllerTest extends AbstractControllerTest {
     public void testGetProfiles() throws Exception {
         String uri = "/api/profiles";
 
-        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri)
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri)
                 .header("Authorization", "Bearer " + accessToken)
                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -99,12 +112,125 @@ public class ProfileControllerTest extends AbstractControllerTest {
         Assert.assertTrue("failure - expected HTTP response body to have a value", content.trim().length() > 0);
     }
 
+    @Test
+    public void testRequestMetrics() throws Exception {
+        perform(MockMvcRequestBuilders.get("/api/profiles")
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+        perform(MockMvcRequestBuilders.get("/api/profiles")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        Map<String, Number> metrics = new HashMap<>();
+        for (Metric<?> metric : requestMetrics.metrics()) {
+            metrics.put(metric.getName(), metric.getValue());
+        }
+
+        Assert.assertTrue("failure - expected handler count",
+                metrics.get("http.ProfileController.getProfiles.count").longValue() >= 1);
+        Assert.assertTrue("failure - expected handler status count",
+                metrics.get("http.ProfileController.getProfiles.status.2xx").longValue() >= 1);
+        Assert.assertEquals("failure - expected no request in flight",
+                0L, metrics.get("http.ProfileController.getProfiles.in-flight").longValue());
+        Assert.assertTrue("failure - expected token endpoint count",
+                metrics.get("http.TokenEndpoint.postAccessToken.count").longValue() >= 1);
+        Assert.assertTrue("failure - expected unauthorized request count",
+                metrics.get("http.unmapped.status.4xx").longValue() >= 1);
+    }
+
+    @Test
+    public void testGetProfilesPage() throws Exception {
+        String uri = "/api/profiles";
+
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri)
+                .param("page", "0")
+                .param("size", "3")
+                .param("sort", "name")
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        String content = result.getResponse().getContentAsString();
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200, result.getResponse().getStatus());
+        Assert.assertEquals("failure - expected page size", 3, mapFromJson(content, JsonNode.class).get("content").size());
+        Assert.assertEquals("failure - expected total elements", 4, mapFromJson(content, JsonNode.class).get("totalElements").asInt());
+    }
+
+    @Test
+    public void testGetProfilesAfter() throws Exception {
+        String uri = "/api/profiles";
+
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri)
+                .param("after", "1")
+                .param("size", "2")
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        String content = result.getResponse().getContentAsString();
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200, result.getResponse().getStatus());
+        Assert.assertEquals("failure - expected page size", 2, mapFromJson(content, JsonNode.class).size());
+        Assert.assertEquals("failure - expected first id", 2, mapFromJson(content, JsonNode.class).get(0).get("id").asInt());
+    }
+
+    @Test
+    public void testGetProfilesById() throws Exception {
+        String uri = "/api/profiles";
+
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri)
+                .param("ids", "3,1," + Long.MAX_VALUE)
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        String content = result.getResponse().getContentAsString();
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200, result.getResponse().getStatus());
+        Assert.assertEquals("failure - expected list size", 2, mapFromJson(content, JsonNode.class).size());
+        Assert.assertEquals("failure - expected first id", 3, mapFromJson(content, JsonNode.class).get(0).get("id").asInt());
+    }
+
+    @Test
+    public void testGetProfilesByIdEmptyId() throws Exception {
+        String uri = "/api/profiles";
+
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri)
+                .param("ids", "1,,2")
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        String content = result.getResponse().getContentAsString();
+
+        Assert.assertEquals("failure - expected HTTP status 400", 400, result.getResponse().getStatus());
+        Assert.assertTrue("failure - expected HTTP response body to be empty", content.trim().length() == 0);
+    }
+
+    @Test
+    public void testStreamProfiles() throws Exception {
+        String uri = "/api/profiles";
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri)
+                .param("stream", "true")
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+        // Wait for the response body to be written on the async thread
+        result.getAsyncResult();
+
+        String content = result.getResponse().getContentAsString();
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200, result.getResponse().getStatus());
+        Assert.assertEquals("failure - expected list size", 4, mapFromJson(content, JsonNode.class).size());
+    }
+
     @Test
     public void testGetProfile() throws Exception {
         String uri = "/api/profiles/{id}";
         Long id = 1L;
 
-        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri, id)
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri, id)
                 .header("Authorization", "Bearer " + accessToken)
                 .accept(MediaType.APPLICATION_JSON)).andReturn();
 
@@ -115,12 +241,37 @@ public class ProfileControllerTest extends AbstractControllerTest {
         Assert.assertTrue("failure - expected HTTP response body to have a value", content.trim().length() > 0);
     }
 
+    @Test
+    public void testGetProfileNotModified() throws Exception {
+        String uri = "/api/profiles/{id}";
+        Long id = 1L;
+
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        String eTag = result.getResponse().getHeader("ETag");
+
+        Assert.assertNotNull("failure - expected ETag header", eTag);
+
+        result = perform(MockMvcRequestBuilders.get(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .header("If-None-Match", eTag)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 304", 304, status);
+        Assert.assertTrue("failure - expected HTTP response body to be empty", content.trim().length() == 0);
+    }
+
     @Test
     public void testGetProfileNotFound() throws Exception {
         String uri = "/api/profiles/{id}";
         Long id = Long.MAX_VALUE;
 
-        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(uri, id)
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri, id)
                 .header("Authorization", "Bearer " + accessToken)
                 .accept(MediaType.APPLICATION_JSON)).andReturn();
 
@@ -131,6 +282,22 @@ public class ProfileControllerTest extends AbstractControllerTest {
         Assert.assertTrue("failure - expected HTTP response body to be empty", content.trim().length() == 0);
     }
 
+    @Test
+    public void testGetProfileByReference() throws Exception {
+        String uri = "/api/profiles/ref/{referenceId}";
+        String referenceId = "1e0d5287-67fd-4043-9ac4-b8d358d6d7ce";
+
+        MvcResult result = perform(MockMvcRequestBuilders.get(uri, referenceId)
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200, status);
+        Assert.assertEquals("failure - expected id", 1, mapFromJson(content, JsonNode.class).get("id").asInt());
+    }
+
     @Test
     public void testCreateProfile() throws Exception {
         String uri = "/api/profiles";
@@ -138,11 +305,10 @@ public class ProfileControllerTest extends AbstractControllerTest {
         profile.setName("test");
         String inputJson = super.mapToJson(profile);
 
-        MvcResult result = mvc
-                .perform(MockMvcRequestBuilders.post(uri)
-                        .header("Authorization", "Bearer " + accessToken)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .accept(MediaType.APPLICATION_JSON).content(inputJson))
+        MvcResult result = perform(MockMvcRequestBuilders.post(uri)
+                .header("Authorization", "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content(inputJson))
                 .andReturn();
 
         String content = result.getResponse().getContentAsString();
@@ -158,6 +324,28 @@ public class ProfileControllerTest extends AbstractControllerTest {
         Assert.assertEquals("failure - expected profile.text match", "test", createdProfile.getName());
     }
 
+    @Test
+    public void testCreateProfilesTooLarge() throws Exception {
+        String uri = "/api/profiles/batch";
+        StringBuilder inputJson = new StringBuilder("[{}");
+        for (int i = 1; i <= 1000; i++) {
+            inputJson.append(",{}");
+        }
+        inputJson.append("]");
+
+        MvcResult result = perform(MockMvcRequestBuilders.post(uri)
+                .header("Authorization", "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content(inputJson.toString()))
+                .andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 400", 400, status);
+        Assert.assertTrue("failure - expected HTTP response body to be empty", content.trim().length() == 0);
+    }
+
     @Test
     public void testUpdateProfile() throws Exception {
         String uri = "/api/profiles/{id}";
@@ -167,11 +355,10 @@ public class ProfileControllerTest extends AbstractControllerTest {
         profile.setName(updatedText);
         String inputJson = super.mapToJson(profile);
 
-        MvcResult result = mvc
-                .perform(MockMvcRequestBuilders.put(uri, id)
-                        .header("Authorization", "Bearer " + accessToken)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .accept(MediaType.APPLICATION_JSON).content(inputJson))
+        MvcResult result = perform(MockMvcRequestBuilders.put(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content(inputJson))
                 .andReturn();
 
         String content = result.getResponse().getContentAsString();
@@ -187,12 +374,126 @@ public class ProfileControllerTest extends AbstractControllerTest {
         Assert.assertEquals("failure - expected updated profile text match", updatedText, updatedProfile.getName());
     }
 
+    @Test
+    public void testUpdateProfilePreconditionFailed() throws Exception {
+        String uri = "/api/profiles";
+        Profile profile = profileService.findOne(1L);
+        String name = profile.getName();
+
+        Profile update = new Profile();
+        update.setId(profile.getId());
+        update.setName(name + " test");
+        String inputJson = super.mapToJson(update);
+
+        MvcResult result = perform(MockMvcRequestBuilders.put(uri)
+                .header("Authorization", "Bearer " + accessToken)
+                .header("If-Match", "\"1.999\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content(inputJson))
+                .andReturn();
+
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 412", 412, status);
+        Assert.assertEquals("failure - expected name unchanged", name, profileService.findOne(1L).getName());
+    }
+
+    @Test
+    public void testUpdateProfileModifiedAfterCheck() throws Exception {
+        String uri = "/api/profiles";
+        Profile profile = profileService.findOne(1L);
+        String name = profile.getName();
+
+        // A cached Profile which is behind the data store, as when another
+        // request commits between the If-Match check and the update
+        Profile stale = new Profile();
+        stale.setId(profile.getId());
+        stale.setName(name);
+        stale.setVersion(profile.getVersion() + 1);
+        cacheManager.getCache("profiles").put(stale.getId(), stale);
+
+        Profile update = new Profile();
+        update.setId(profile.getId());
+        update.setName(name + " test");
+        String inputJson = super.mapToJson(update);
+
+        MvcResult result = perform(MockMvcRequestBuilders.put(uri)
+                .header("Authorization", "Bearer " + accessToken)
+                .header("If-Match", "\"1." + stale.getVersion() + "\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content(inputJson))
+                .andReturn();
+
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 412", 412, status);
+        profileService.evictCache();
+        Assert.assertEquals("failure - expected name unchanged", name, profileService.findOne(1L).getName());
+    }
+
+    @Test
+    public void testPatchProfile() throws Exception {
+        String uri = "/api/profiles/{id}";
+        Long id = 1L;
+        String name = profileService.findOne(id).getName();
+
+        MvcResult result = perform(MockMvcRequestBuilders.patch(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content("{\"mobile\":\"0123456789\"}"))
+                .andReturn();
+
+        String content = result.getResponse().getContentAsString();
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 200", 200, status);
+
+        Profile updatedProfile = super.mapFromJson(content, Profile.class);
+
+        Assert.assertEquals("failure - expected profile.mobile match", "0123456789", updatedProfile.getMobile());
+        Assert.assertEquals("failure - expected profile.name unchanged", name, updatedProfile.getName());
+        Assert.assertEquals("failure - expected ETag of new version", "\"1." + updatedProfile.getVersion() + "\"",
+                result.getResponse().getHeader("ETag"));
+    }
+
+    @Test
+    public void testPatchProfileBadRequest() throws Exception {
+        String uri = "/api/profiles/{id}";
+        Long id = 1L;
+
+        MvcResult result = perform(MockMvcRequestBuilders.patch(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content("{\"version\":7}"))
+                .andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 400", 400, result.getResponse().getStatus());
+        Assert.assertTrue("failure - expected JSON content type",
+                result.getResponse().getContentType().startsWith(MediaType.APPLICATION_JSON_VALUE));
+        Assert.assertEquals("failure - expected status attribute", 400,
+                mapFromJson(result.getResponse().getContentAsString(), JsonNode.class).get("status").asInt());
+    }
+
+    @Test
+    public void testPatchProfileNullName() throws Exception {
+        String uri = "/api/profiles/{id}";
+        Long id = 1L;
+
+        MvcResult result = perform(MockMvcRequestBuilders.patch(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON).content("{\"name\":null}"))
+                .andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 400", 400, result.getResponse().getStatus());
+    }
+
     @Test
     public void testDeleteProfile() throws Exception {
         String uri = "/api/profiles/{id}";
         Long id = 1L;
 
-        MvcResult result = mvc.perform(MockMvcRequestBuilders.delete(uri, id)
+        MvcResult result = perform(MockMvcRequestBuilders.delete(uri, id)
                 .header("Authorization", "Bearer " + accessToken)
                 .contentType(MediaType.APPLICATION_JSON)).andReturn();
 
@@ -206,4 +507,20 @@ public class ProfileControllerTest extends AbstractControllerTest {
 
         Assert.assertNull("failure - expected profile to be null", deletedProfile);
     }
+
+    @Test
+    public void testDeleteProfilePreconditionFailed() throws Exception {
+        String uri = "/api/profiles/{id}";
+        Long id = 1L;
+
+        MvcResult result = perform(MockMvcRequestBuilders.delete(uri, id)
+                .header("Authorization", "Bearer " + accessToken)
+                .header("If-Match", "\"1.999\"")
+                .contentType(MediaType.APPLICATION_JSON)).andReturn();
+
+        int status = result.getResponse().getStatus();
+
+        Assert.assertEquals("failure - expected HTTP status 412", 412, status);
+        Assert.assertNotNull("failure - expected profile not deleted", profileService.findOne(id));
+    }
 }
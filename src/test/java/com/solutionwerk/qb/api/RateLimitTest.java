@@ -0,0 +1,70 @@
+package com.solutionwerk.qb.api;
+
+import com.solutionwerk.qb.AbstractControllerTest;
+import com.solutionwerk.qb.web.ratelimit.RateLimiter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the rate limit of a user, whose bucket holds 10 tokens and is not
+ * refilled within the test.
+ */
+@TestPropertySource(properties = {"qb.ratelimit.enabled=true", "qb.ratelimit.user.capacity=10",
+        "qb.ratelimit.user.rate=0.01"})
+public class RateLimitTest extends AbstractControllerTest {
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    private String accessToken;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        try {
+            accessToken = getAccessToken("qbAdmin", "QuoteBuilder@1");
+        } catch (Exception e) {
+            LOGGER.error("Failed to get Access Token.");
+        }
+    }
+
+    private int getProfilesPage() throws Exception {
+        return perform(MockMvcRequestBuilders.get("/api/profiles")
+                .param("page", "0")
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getStatus();
+    }
+
+    @Test
+    public void testTooManyRequests() throws Exception {
+        Assert.assertEquals("failure - expected HTTP status 200", 200, getProfilesPage());
+        Assert.assertEquals("failure - expected HTTP status 200", 200, getProfilesPage());
+
+        MvcResult result = perform(MockMvcRequestBuilders.get("/api/profiles/{id}", 1L)
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        Assert.assertEquals("failure - expected HTTP status 429", 429, result.getResponse().getStatus());
+        Assert.assertTrue("failure - expected Retry-After seconds",
+                Long.parseLong(result.getResponse().getHeader("Retry-After")) > 0);
+
+        Map<String, Number> metrics = new HashMap<>();
+        for (Metric<?> metric : rateLimiter.metrics()) {
+            metrics.put(metric.getName(), metric.getValue());
+        }
+        Assert.assertEquals("failure - expected rejection of the user", 1,
+                metrics.get("ratelimit.user.qbAdmin.rejected").intValue());
+    }
+}
@@ -0,0 +1,135 @@
+package com.solutionwerk.qb.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Unit tests for the SingleFlight using a loader which blocks until released.
+ */
+public class SingleFlightTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger invocations = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private SingleFlight singleFlight;
+
+    private Supplier<String> blockingLoader;
+
+    @Before
+    public void setUp() {
+        singleFlight = new SingleFlight();
+        ReflectionTestUtils.setField(singleFlight, "timeout", 10000L);
+        blockingLoader = () -> {
+            invocations.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "value";
+        };
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    private Map<String, Number> metrics() {
+        Map<String, Number> metrics = new HashMap<>();
+        for (Metric<?> metric : singleFlight.metrics()) {
+            metrics.put(metric.getName(), metric.getValue());
+        }
+        return metrics;
+    }
+
+    @Test
+    public void testConcurrentLoadsCoalesced() throws Exception {
+        Future<String> leader = executor.submit(() -> singleFlight.load("profiles", 1L, blockingLoader));
+        Assert.assertTrue("failure - expected loader started", started.await(10, TimeUnit.SECONDS));
+
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            followers.add(executor.submit(() -> singleFlight.load("profiles", 1L, blockingLoader)));
+        }
+        while (metrics().get("cache.single-flight.coalesced").intValue() < 3) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        Assert.assertEquals("failure - expected loaded value", "value", leader.get(10, TimeUnit.SECONDS));
+        for (Future<String> follower : followers) {
+            Assert.assertEquals("failure - expected shared value", "value", follower.get(10, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals("failure - expected one load", 1, invocations.get());
+        Assert.assertEquals("failure - expected next call to load again", "other",
+                singleFlight.load("profiles", 1L, () -> "other"));
+    }
+
+    @Test
+    public void testWaitBounded() throws Exception {
+        ReflectionTestUtils.setField(singleFlight, "timeout", 50L);
+        executor.submit(() -> singleFlight.load("profiles", 1L, blockingLoader));
+        Assert.assertTrue("failure - expected loader started", started.await(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals("failure - expected own load after timeout", "own",
+                singleFlight.load("profiles", 1L, () -> "own"));
+        Assert.assertEquals("failure - expected timeout count", 1,
+                metrics().get("cache.single-flight.timeouts").intValue());
+    }
+
+    @Test
+    public void testFailureShared() throws Exception {
+        CountDownLatch failing = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.<String>load("profiles", 1L, () -> {
+            started.countDown();
+            try {
+                failing.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("failed");
+        }));
+        Assert.assertTrue("failure - expected loader started", started.await(10, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> singleFlight.load("profiles", 1L, () -> "value"));
+        while (metrics().get("cache.single-flight.coalesced").intValue() < 1) {
+            Thread.sleep(10);
+        }
+        failing.countDown();
+
+        for (Future<String> future : Arrays.asList(leader, follower)) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                Assert.fail("failure - expected load failure");
+            } catch (ExecutionException e) {
+                Assert.assertTrue("failure - expected loader exception",
+                        e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.solutionwerk.qb.datasource;
+
+import com.solutionwerk.qb.util.RequestContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Unit tests for the ReadWriteRoutingDataSource using two in-memory HSQLDB
+ * instances as primary and replica.
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = "jdbc:hsqldb:mem:routingPrimary";
+
+    private static final String REPLICA_URL = "jdbc:hsqldb:mem:routingReplica";
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readOnly;
+
+    private TransactionTemplate readWrite;
+
+    @Before
+    public void setUp() {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                new DriverManagerDataSource(PRIMARY_URL, "sa", ""),
+                new DriverManagerDataSource(REPLICA_URL, "sa", ""), 60000);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+
+        RequestContext.init();
+        RequestContext.setUsername("reader");
+    }
+
+    @After
+    public void tearDown() {
+        RequestContext.init();
+    }
+
+    private String url(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getURL()));
+    }
+
+    @Test
+    public void testReadOnlyRoutedToReplica() {
+        Assert.assertEquals("failure - expected replica", REPLICA_URL, url(readOnly));
+    }
+
+    @Test
+    public void testReadWriteRoutedToPrimary() {
+        Assert.assertEquals("failure - expected primary", PRIMARY_URL, url(readWrite));
+    }
+
+    @Test
+    public void testReadYourWrites() {
+        RequestContext.setUsername("writer");
+        url(readWrite);
+
+        Assert.assertEquals("failure - expected primary within request", PRIMARY_URL, url(readOnly));
+
+        // The next request of the writing user stays within the window
+        RequestContext.init();
+        RequestContext.setUsername("writer");
+
+        Assert.assertEquals("failure - expected primary within window", PRIMARY_URL, url(readOnly));
+
+        RequestContext.init();
+        RequestContext.setUsername("reader");
+
+        Assert.assertEquals("failure - expected replica for other user", REPLICA_URL, url(readOnly));
+    }
+
+    @Test
+    public void testWriteOutsideRequest() throws Exception {
+        // A thread which never serves a request, as a scheduler thread
+        String url = CompletableFuture.supplyAsync(() -> {
+            url(readWrite);
+            return url(readOnly);
+        }, runnable -> new Thread(runnable).start()).get();
+
+        Assert.assertEquals("failure - expected replica after write completed", REPLICA_URL, url);
+    }
+}
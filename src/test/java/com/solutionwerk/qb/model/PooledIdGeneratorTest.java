@@ -0,0 +1,124 @@
+package com.solutionwerk.qb.model;
+
+import com.solutionwerk.qb.AbstractTest;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests the reservation of identifier blocks by several PooledIdGenerator
+ * instances, standing in for several nodes, sharing one IdSequence row.
+ */
+public class PooledIdGeneratorTest extends AbstractTest {
+
+    private static final String TABLE_NAME = "PooledIdTest";
+
+    private static final int BLOCK_SIZE = 10;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Before
+    public void createTable() throws SQLException {
+        super.setUp();
+        execute("CREATE TABLE " + TABLE_NAME + " (id BIGINT NOT NULL, PRIMARY KEY (id))");
+        execute("INSERT INTO " + TABLE_NAME + " (id) VALUES (41)");
+    }
+
+    @After
+    public void dropTable() throws SQLException {
+        execute("DELETE FROM " + PooledIdGenerator.SEQUENCE_TABLE + " WHERE name = '" + TABLE_NAME + "'");
+        execute("DROP TABLE " + TABLE_NAME);
+    }
+
+    @Test
+    public void testConcurrentReservations() throws Exception {
+        List<PooledIdGenerator> generators = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            generators.add(newGenerator());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 80; i++) {
+                PooledIdGenerator generator = generators.get(i % generators.size());
+                futures.add(executor.submit((Callable<Long>) () -> reserve(generator)));
+            }
+
+            List<Long> firsts = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                firsts.add(future.get());
+            }
+            Collections.sort(firsts);
+
+            // The row is initialized after the greatest existing identifier
+            Assert.assertEquals("failure - expected first block after existing rows", 42L, (long) firsts.get(0));
+            for (int i = 1; i < firsts.size(); i++) {
+                Assert.assertEquals("failure - expected adjacent, disjoint blocks",
+                        firsts.get(i - 1) + BLOCK_SIZE, (long) firsts.get(i));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMissingTableFails() throws Exception {
+        execute("DROP TABLE " + TABLE_NAME);
+        try {
+            reserve(newGenerator());
+            Assert.fail("failure - expected SQLException");
+        } catch (SQLException e) {
+            Assert.assertFalse("failure - expected no constraint violation", e.getSQLState().startsWith("23"));
+        } finally {
+            execute("CREATE TABLE " + TABLE_NAME + " (id BIGINT NOT NULL)");
+        }
+    }
+
+    private PooledIdGenerator newGenerator() {
+        Properties params = new Properties();
+        params.setProperty(PersistentIdentifierGenerator.TABLE, TABLE_NAME);
+        params.setProperty(PooledIdGenerator.BLOCK_SIZE, String.valueOf(BLOCK_SIZE));
+        PooledIdGenerator generator = new PooledIdGenerator();
+        generator.configure(null, params, null);
+        return generator;
+    }
+
+    private long reserve(PooledIdGenerator generator) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long first = generator.reserve(connection);
+                connection.commit();
+                return first;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
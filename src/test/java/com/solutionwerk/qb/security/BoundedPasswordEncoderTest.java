@@ -0,0 +1,193 @@
+package com.solutionwerk.qb.security;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the BoundedPasswordEncoder using a delegate PasswordEncoder
+ * which blocks until released.
+ */
+public class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BoundedPasswordEncoder encoder;
+
+    @Before
+    public void setUp() {
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+        encoder = new BoundedPasswordEncoder(blocking, 1, 1, 10000);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    public void testMatches() {
+        release.countDown();
+
+        Assert.assertTrue("failure - expected match", encoder.matches("password", "password"));
+        Assert.assertFalse("failure - expected no match", encoder.matches("password", "other"));
+    }
+
+    @Test
+    public void testRejectedWhenQueueFull() throws Exception {
+        // Occupy the single worker and the single queue slot
+        new Thread(() -> encoder.matches("a", "a")).start();
+        new Thread(() -> encoder.matches("b", "b")).start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (getMetric("password.pool.queue.size") < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Exception exception = null;
+        try {
+            encoder.matches("c", "c");
+        } catch (PasswordCheckUnavailableException e) {
+            exception = e;
+        }
+
+        Assert.assertNotNull("failure - expected exception", exception);
+        Assert.assertEquals("failure - expected 503", 503, ((PasswordCheckUnavailableException) exception).getHttpErrorCode());
+        Assert.assertEquals("failure - expected rejected count", 1L, getMetric("password.pool.rejected"));
+    }
+
+    @Test
+    public void testRejectedWhenTimeoutWouldElapse() throws Exception {
+        BoundedPasswordEncoder timedEncoder = new BoundedPasswordEncoder(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                try {
+                    if ("slow".equals(rawPassword.toString())) {
+                        Thread.sleep(200);
+                    } else {
+                        release.await(10, TimeUnit.SECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        }, 1, 10, 500);
+        try {
+            // Measure the running time, then occupy the worker and queue one operation
+            Assert.assertTrue("failure - expected match", timedEncoder.matches("slow", "slow"));
+            for (int queued = -1; queued < 1; queued++) {
+                new Thread(() -> timedEncoder.matches("b", "b")).start();
+                String metric = queued < 0 ? "password.pool.active" : "password.pool.queue.size";
+                long expected = queued < 0 ? 1 : queued + 1;
+                long deadline = System.currentTimeMillis() + 5000;
+                while (getMetric(timedEncoder, metric) < expected && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                }
+            }
+
+            Exception exception = null;
+            try {
+                timedEncoder.matches("c", "c");
+            } catch (PasswordCheckUnavailableException e) {
+                exception = e;
+            }
+
+            Assert.assertNotNull("failure - expected exception", exception);
+            Assert.assertEquals("failure - expected rejected count", 1L,
+                    getMetric(timedEncoder, "password.pool.rejected"));
+        } finally {
+            timedEncoder.destroy();
+        }
+    }
+
+    @Test
+    public void testTimedOutOperations() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        BoundedPasswordEncoder timedEncoder = new BoundedPasswordEncoder(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                calls.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        }, 1, 10, 100);
+        try {
+            // The first operation times out running, the second queued behind it
+            for (String password : new String[]{"a", "b"}) {
+                try {
+                    timedEncoder.matches(password, password);
+                    Assert.fail("failure - expected PasswordCheckUnavailableException");
+                } catch (PasswordCheckUnavailableException e) {
+                    // expected
+                }
+            }
+            Assert.assertEquals("failure - expected abandoned count", 1L,
+                    getMetric(timedEncoder, "password.pool.abandoned"));
+
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((getMetric(timedEncoder, "password.pool.abandoned") > 0
+                    || getMetric(timedEncoder, "password.pool.queue.size") > 0
+                    || getMetric(timedEncoder, "password.pool.active") > 0)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+
+            Assert.assertEquals("failure - expected no abandoned operations", 0L,
+                    getMetric(timedEncoder, "password.pool.abandoned"));
+            Assert.assertEquals("failure - expected the queued operation skipped", 1, calls.get());
+        } finally {
+            timedEncoder.destroy();
+        }
+    }
+
+    private long getMetric(String name) {
+        return getMetric(encoder, name);
+    }
+
+    private static long getMetric(BoundedPasswordEncoder encoder, String name) {
+        for (Metric<?> metric : encoder.metrics()) {
+            if (metric.getName().equals(name)) {
+                return metric.getValue().longValue();
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,99 @@
+package com.solutionwerk.qb.security;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import java.util.Date;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the CachingTokenStore using a Mockito delegate TokenStore.
+ */
+public class CachingTokenStoreTest {
+
+    private static final String TOKEN_VALUE = "access";
+
+    @Mock
+    private TokenStore delegate;
+
+    @Mock
+    private OAuth2Authentication authentication;
+
+    private CachingTokenStore tokenStore;
+
+    private DefaultOAuth2AccessToken accessToken;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        tokenStore = new CachingTokenStore(delegate, new ConcurrentMapCache("accessTokens"),
+                new ConcurrentMapCache("accessTokenRefreshIndex"));
+
+        accessToken = new DefaultOAuth2AccessToken(TOKEN_VALUE);
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + 60000));
+        accessToken.setRefreshToken(new DefaultOAuth2RefreshToken("refresh"));
+    }
+
+    @Test
+    public void testReadHitsDelegateOnce() {
+        when(delegate.readAccessToken(TOKEN_VALUE)).thenReturn(accessToken);
+        when(delegate.readAuthentication(TOKEN_VALUE)).thenReturn(authentication);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertSame("failure - expected cached token", accessToken, tokenStore.readAccessToken(TOKEN_VALUE));
+            Assert.assertSame("failure - expected cached authentication", authentication, tokenStore.readAuthentication(accessToken));
+        }
+
+        verify(delegate, times(1)).readAccessToken(TOKEN_VALUE);
+        verify(delegate, times(1)).readAuthentication(TOKEN_VALUE);
+    }
+
+    @Test
+    public void testStoreWritesThrough() {
+        tokenStore.storeAccessToken(accessToken, authentication);
+
+        verify(delegate, times(1)).storeAccessToken(accessToken, authentication);
+        Assert.assertSame("failure - expected cached authentication", authentication, tokenStore.readAuthentication(TOKEN_VALUE));
+        verify(delegate, never()).readAuthentication(anyString());
+    }
+
+    @Test
+    public void testRemoveEvicts() {
+        tokenStore.storeAccessToken(accessToken, authentication);
+
+        tokenStore.removeAccessToken(accessToken);
+
+        verify(delegate, times(1)).removeAccessToken(accessToken);
+        Assert.assertNull("failure - expected null", tokenStore.readAccessToken(TOKEN_VALUE));
+    }
+
+    @Test
+    public void testRemoveUsingRefreshTokenEvicts() {
+        tokenStore.storeAccessToken(accessToken, authentication);
+
+        tokenStore.removeAccessTokenUsingRefreshToken(accessToken.getRefreshToken());
+
+        Assert.assertNull("failure - expected null", tokenStore.readAccessToken(TOKEN_VALUE));
+    }
+
+    @Test
+    public void testExpiredTokenIsNotCached() {
+        accessToken.setExpiration(new Date(System.currentTimeMillis() - 1000));
+        when(delegate.readAccessToken(TOKEN_VALUE)).thenReturn(accessToken);
+        when(delegate.readAuthentication(TOKEN_VALUE)).thenReturn(authentication);
+
+        tokenStore.readAccessToken(TOKEN_VALUE);
+        tokenStore.readAccessToken(TOKEN_VALUE);
+
+        verify(delegate, times(2)).readAccessToken(TOKEN_VALUE);
+    }
+}
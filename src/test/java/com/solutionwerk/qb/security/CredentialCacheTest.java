@@ -0,0 +1,55 @@
+package com.solutionwerk.qb.security;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Unit tests for the CredentialCache.
+ */
+public class CredentialCacheTest {
+
+    private CredentialCache credentialCache;
+
+    private UserDetails userDetails;
+
+    @Before
+    public void setUp() {
+        credentialCache = new CredentialCache(new ConcurrentMapCache("credentials"));
+        userDetails = getUserDetails("$2a$10$hash");
+    }
+
+    @Test
+    public void testVerified() {
+        Assert.assertFalse("failure - expected not verified", credentialCache.isVerified(userDetails, "password"));
+
+        credentialCache.verified(userDetails, "password");
+
+        Assert.assertTrue("failure - expected verified", credentialCache.isVerified(userDetails, "password"));
+        Assert.assertFalse("failure - expected not verified", credentialCache.isVerified(userDetails, "other"));
+    }
+
+    @Test
+    public void testPasswordHashChangeInvalidates() {
+        credentialCache.verified(userDetails, "password");
+
+        Assert.assertFalse("failure - expected not verified",
+                credentialCache.isVerified(getUserDetails("$2a$10$changed"), "password"));
+    }
+
+    @Test
+    public void testEvict() {
+        credentialCache.verified(userDetails, "password");
+        credentialCache.evict("user");
+
+        Assert.assertFalse("failure - expected not verified", credentialCache.isVerified(userDetails, "password"));
+    }
+
+    private UserDetails getUserDetails(String passwordHash) {
+        return new User("user", passwordHash, AuthorityUtils.createAuthorityList("ROLE_USER"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.solutionwerk.qb.security;
+
+import com.solutionwerk.qb.AbstractTest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.JdbcTokenStore;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * Unit tests for the TokenPurger against the tokens of a dedicated client in
+ * the JdbcTokenStore tables.
+ */
+public class TokenPurgerTest extends AbstractTest {
+
+    private static final String CLIENT_ID = "purgeTestClient";
+
+    @Autowired
+    private TokenPurger tokenPurger;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTokenStore tokenStore;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        tokenStore = new JdbcTokenStore(dataSource);
+    }
+
+    @After
+    public void tearDown() {
+        for (String username : new String[]{"qbAdmin", "nobody"}) {
+            tokenStore.findTokensByClientIdAndUserName(CLIENT_ID, username).forEach(tokenStore::removeAccessToken);
+        }
+        tokenStore.removeRefreshToken(new DefaultExpiringOAuth2RefreshToken("purge-refresh-valid", new Date()));
+    }
+
+    private OAuth2Authentication authentication(String username, String scope) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), CLIENT_ID, Collections.emptyList(), true,
+                Collections.singleton(scope), null, null, null, null);
+        return new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken(username, "N/A", Collections.emptyList()));
+    }
+
+    private DefaultOAuth2AccessToken accessToken(String value, long expiresIn) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(value);
+        token.setExpiration(new Date(System.currentTimeMillis() + expiresIn));
+        return token;
+    }
+
+    @Test
+    public void testPurge() {
+        tokenStore.storeAccessToken(accessToken("purge-expired", -60000), authentication("qbAdmin", "expired"));
+        tokenStore.storeAccessToken(accessToken("purge-valid", 60000), authentication("qbAdmin", "valid"));
+        tokenStore.storeAccessToken(accessToken("purge-orphaned", 60000), authentication("nobody", "valid"));
+        tokenStore.storeRefreshToken(new DefaultExpiringOAuth2RefreshToken("purge-refresh-expired",
+                new Date(System.currentTimeMillis() - 60000)), authentication("qbAdmin", "expired"));
+        tokenStore.storeRefreshToken(new DefaultExpiringOAuth2RefreshToken("purge-refresh-valid",
+                new Date(System.currentTimeMillis() + 60000)), authentication("qbAdmin", "valid"));
+
+        tokenPurger.purge();
+
+        Assert.assertNull("failure - expected expired token purged", tokenStore.readAccessToken("purge-expired"));
+        Assert.assertNull("failure - expected orphaned token purged", tokenStore.readAccessToken("purge-orphaned"));
+        Assert.assertNotNull("failure - expected valid token retained", tokenStore.readAccessToken("purge-valid"));
+        Assert.assertNull("failure - expected expired refresh token purged",
+                tokenStore.readRefreshToken("purge-refresh-expired"));
+        Assert.assertNotNull("failure - expected valid refresh token retained",
+                tokenStore.readRefreshToken("purge-refresh-valid"));
+    }
+}
@@ -0,0 +1,162 @@
+package com.solutionwerk.qb.service;
+
+import com.solutionwerk.qb.AbstractTest;
+import com.solutionwerk.qb.model.Account;
+import com.solutionwerk.qb.model.Role;
+import com.solutionwerk.qb.model.network.BatchResult;
+import com.solutionwerk.qb.model.network.User;
+import org.hibernate.Hibernate;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.NoResultException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit test methods for the AccountService and AccountServiceBean.
+ */
+@Transactional
+public class AccountServiceTest extends AbstractTest {
+
+    private static final String EXISTING_USERNAME = "qbAdmin";
+
+    @Autowired
+    private AccountService service;
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        service.evictCache();
+    }
+
+    @Test
+    public void testFindByUsername() {
+        Account entity = service.findByUsername(EXISTING_USERNAME);
+
+        Assert.assertNotNull("failure - expected not null", entity);
+        Assert.assertEquals("failure - expected username attribute match", EXISTING_USERNAME, entity.getUsername());
+    }
+
+    @Test
+    public void testFindByUsernameNotFound() {
+        Account entity = service.findByUsername("unknown");
+
+        Assert.assertNull("failure - expected null", entity);
+    }
+
+    @Test
+    public void testFindByUsernameSharesCachedEntity() {
+        Account byUsername = service.findByUsername(EXISTING_USERNAME);
+        Account byId = service.findOne(byUsername.getId());
+
+        Assert.assertSame("failure - expected same cached instance", byUsername, byId);
+        Assert.assertSame("failure - expected same cached instance", byId, service.findByUsername(EXISTING_USERNAME));
+    }
+
+    @Test
+    public void testFindAll() {
+        Collection<Account> accounts = service.findAll();
+
+        Assert.assertEquals("failure - expected 4 distinct accounts", 4, accounts.size());
+        for (Account account : accounts) {
+            Assert.assertTrue("failure - expected roles fetched", Hibernate.isInitialized(account.getRoles()));
+            Assert.assertTrue("failure - expected profile fetched", Hibernate.isInitialized(account.getProfile()));
+        }
+    }
+
+    @Test
+    public void testFindAllByIds() {
+        Account byUsername = service.findByUsername(EXISTING_USERNAME);
+        service.evictCache();
+
+        Collection<Account> accounts = service.findAll(Arrays.asList(byUsername.getId(), Long.MAX_VALUE));
+
+        Assert.assertEquals("failure - expected one distinct account", 1, accounts.size());
+        Account byId = accounts.iterator().next();
+        Assert.assertFalse("failure - expected roles fetched", byId.getRoles().isEmpty());
+        Assert.assertSame("failure - expected cache back-filled", byId, service.findOne(byUsername.getId()));
+    }
+
+    @Test
+    public void testUpdateUsernameEvictsPreviousUsername() {
+        Account entity = service.findByUsername(EXISTING_USERNAME);
+
+        Account update = new Account();
+        update.setId(entity.getId());
+        update.setUsername("qbAdminRenamed");
+        service.update(update, null);
+
+        Assert.assertNull("failure - expected null", service.findByUsername(EXISTING_USERNAME));
+
+        Account renamed = service.findByUsername("qbAdminRenamed");
+
+        Assert.assertNotNull("failure - expected not null", renamed);
+        Assert.assertEquals("failure - expected id attribute match", entity.getId(), renamed.getId());
+    }
+
+    @Test
+    public void testCreateUserWithRole() {
+        User user = getUserStubData("ROLE_USER");
+
+        Account createdEntity = service.create(user);
+
+        Assert.assertNotNull("failure - expected id attribute not null", createdEntity.getId());
+        Assert.assertEquals("failure - expected roles size", 1, createdEntity.getRoles().size());
+        Assert.assertEquals("failure - expected role code match", "ROLE_USER", createdEntity.getRoles().get(0).getCode());
+        Assert.assertSame("failure - expected same cached instance", createdEntity, service.findByUsername("testuser"));
+    }
+
+    @Test
+    public void testCreateUserWithUnknownRole() {
+        Exception exception = null;
+
+        try {
+            service.create(getUserStubData("ROLE_UNKNOWN"));
+        } catch (NoResultException e) {
+            exception = e;
+        }
+
+        Assert.assertNotNull("failure - expected exception", exception);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testCreateAllIsolatesFailedUser() {
+        User unknownRole = getUserStubData("ROLE_UNKNOWN");
+        unknownRole.getAccount().setUsername("testuser2");
+
+        List<BatchResult<Account>> results = service.createAll(Arrays.asList(getUserStubData("ROLE_USER"), unknownRole));
+        try {
+            Assert.assertEquals("failure - expected size", 2, results.size());
+            Assert.assertEquals("failure - expected status", 201, results.get(0).getStatus());
+            Assert.assertEquals("failure - expected role code match", "ROLE_USER",
+                    results.get(0).getEntity().getRoles().get(0).getCode());
+            Assert.assertEquals("failure - expected status", 404, results.get(1).getStatus());
+            Assert.assertNotNull("failure - expected not null", service.findByUsername("testuser"));
+            Assert.assertNull("failure - expected null", service.findByUsername("testuser2"));
+        } finally {
+            if (results.get(0).isSuccess()) {
+                service.delete(results.get(0).getEntity().getId(), null);
+            }
+        }
+    }
+
+    private User getUserStubData(String roleCode) {
+        Account account = new Account();
+        account.setUsername("testuser");
+        account.setPassword("password");
+        Role role = new Role();
+        role.setCode(roleCode);
+        User user = new User();
+        user.setAccount(account);
+        user.setRoles(Collections.singletonList(role));
+        return user;
+    }
+}
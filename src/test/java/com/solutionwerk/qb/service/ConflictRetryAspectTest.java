@@ -0,0 +1,69 @@
+package com.solutionwerk.qb.service;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for the ConflictRetryAspect using a target which conflicts a
+ * given number of times before it succeeds.
+ */
+public class ConflictRetryAspectTest {
+
+    public static class Target {
+
+        private int conflicts;
+
+        private int invocations;
+
+        @RetryOnConflict
+        public String update() {
+            invocations++;
+            if (invocations <= conflicts) {
+                throw new OptimisticLockingFailureException("conflict");
+            }
+            return "updated";
+        }
+    }
+
+    private Target target;
+
+    private Target proxy;
+
+    @Before
+    public void setUp() {
+        ConflictRetryAspect aspect = new ConflictRetryAspect();
+        ReflectionTestUtils.setField(aspect, "maxAttempts", 3);
+        ReflectionTestUtils.setField(aspect, "backoff", 1L);
+        ReflectionTestUtils.setField(aspect, "maxBackoff", 5L);
+
+        target = new Target();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        proxy = factory.getProxy();
+    }
+
+    @Test
+    public void testRetriedUntilSuccess() {
+        target.conflicts = 2;
+
+        Assert.assertEquals("failure - expected update after retries", "updated", proxy.update());
+        Assert.assertEquals("failure - expected invocation count", 3, target.invocations);
+    }
+
+    @Test
+    public void testConflictAfterLastAttempt() {
+        target.conflicts = 3;
+
+        try {
+            proxy.update();
+            Assert.fail("failure - expected OptimisticLockingFailureException");
+        } catch (OptimisticLockingFailureException e) {
+            Assert.assertEquals("failure - expected invocation count", 3, target.invocations);
+        }
+    }
+}
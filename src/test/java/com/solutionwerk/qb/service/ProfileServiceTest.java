@@ -2,16 +2,29 @@ package com.solutionwerk.qb.service;
 
 import com.solutionwerk.qb.AbstractTest;
 import com.solutionwerk.qb.model.Profile;
+import com.solutionwerk.qb.model.network.BatchResult;
+import com.solutionwerk.qb.util.PropertyPatchException;
+import net.sf.ehcache.Ehcache;
+import org.hibernate.cache.ehcache.internal.regions.EhcacheDataRegion;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityExistsException;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.NoResultException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Unit test methods for the ProfileService and ProfileServiceBean.
@@ -24,6 +37,9 @@ public class ProfileServiceTest extends AbstractTest {
     @Autowired
     private ProfileService service;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Before
     public void setUp() {
         super.setUp();
@@ -43,6 +59,28 @@ public class ProfileServiceTest extends AbstractTest {
         Assert.assertEquals("failure - expected list size", 4, list.size());
     }
 
+    @Test
+    public void testFindAllAfter() {
+        List<Profile> firstPage = service.findAllAfter(0L, 3);
+
+        Assert.assertEquals("failure - expected list size", 3, firstPage.size());
+
+        List<Profile> lastPage = service.findAllAfter(firstPage.get(2).getId(), 3);
+
+        Assert.assertEquals("failure - expected list size", 1, lastPage.size());
+        Assert.assertTrue("failure - expected ascending id",
+                lastPage.get(0).getId() > firstPage.get(2).getId());
+    }
+
+    @Test
+    public void testFindAllInBatches() {
+        List<Long> ids = new ArrayList<>();
+
+        service.findAll(3, profile -> ids.add(profile.getId()));
+
+        Assert.assertEquals("failure - expected list size", 4, ids.size());
+    }
+
     @Test
     public void testFindOne() {
         Long id = 1L;
@@ -53,6 +91,19 @@ public class ProfileServiceTest extends AbstractTest {
         Assert.assertEquals("failure - expected id attribute match", id, entity.getId());
     }
 
+    @Test
+    public void testFindAllByIds() {
+        Profile cached = service.findOne(2L);
+
+        List<Profile> list = new ArrayList<>(service.findAll(Arrays.asList(3L, 2L, Long.MAX_VALUE, 1L, 3L)));
+
+        Assert.assertEquals("failure - expected list size", 3, list.size());
+        Assert.assertEquals("failure - expected id order", Long.valueOf(3L), list.get(0).getId());
+        Assert.assertSame("failure - expected same cached instance", cached, list.get(1));
+        Assert.assertEquals("failure - expected id order", Long.valueOf(1L), list.get(2).getId());
+        Assert.assertSame("failure - expected cache back-filled", list.get(0), service.findOne(3L));
+    }
+
     @Test
     public void testFindOneNotFound() {
         Long id = Long.MAX_VALUE;
@@ -62,6 +113,43 @@ public class ProfileServiceTest extends AbstractTest {
         Assert.assertNull("failure - expected null", entity);
     }
 
+    @Test
+    public void testFindByReferenceId() {
+        String referenceId = "1e0d5287-67fd-4043-9ac4-b8d358d6d7ce";
+
+        Profile entity = service.findByReferenceId(referenceId);
+
+        Assert.assertNotNull("failure - expected not null", entity);
+        Assert.assertEquals("failure - expected id attribute match", Long.valueOf(1L), entity.getId());
+        Assert.assertSame("failure - expected same cached instance", entity, service.findOne(1L));
+        Assert.assertSame("failure - expected same cached instance", entity, service.findByReferenceId(referenceId));
+    }
+
+    @Test
+    public void testFindByReferenceIdNotFound() {
+        Profile entity = service.findByReferenceId("unknown");
+
+        Assert.assertNull("failure - expected null", entity);
+    }
+
+    @Test
+    public void testCreateAssignsOrderedReferenceId() {
+        Profile first = new Profile();
+        first.setName("test");
+        Profile second = new Profile();
+        second.setName("test");
+
+        Assert.assertNull("failure - expected referenceId assigned on persist", first.getReferenceId());
+
+        String firstReferenceId = service.create(first).getReferenceId();
+        String secondReferenceId = service.create(second).getReferenceId();
+
+        Assert.assertNotNull("failure - expected referenceId attribute not null", firstReferenceId);
+        Assert.assertTrue("failure - expected ascending referenceId", firstReferenceId.compareTo(secondReferenceId) < 0);
+        Assert.assertEquals("failure - expected id attribute match", first.getId(),
+                service.findByReferenceId(firstReferenceId).getId());
+    }
+
     @Test
     public void testCreate() {
         Profile entity = new Profile();
@@ -95,6 +183,39 @@ public class ProfileServiceTest extends AbstractTest {
         Assert.assertNotNull("failure - expected exception", exception);
     }
 
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testCreateAll() {
+        Profile existing = new Profile();
+        existing.setId(Long.MAX_VALUE);
+        existing.setName("test 2");
+
+        List<Profile> profiles = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Profile entity = new Profile();
+            entity.setName("test " + i);
+            profiles.add(entity);
+        }
+        profiles.set(1, existing);
+
+        List<BatchResult<Profile>> results = service.createAll(profiles);
+        try {
+            Assert.assertEquals("failure - expected size", 3, results.size());
+            Assert.assertEquals("failure - expected status", 201, results.get(0).getStatus());
+            Assert.assertEquals("failure - expected status", 409, results.get(1).getStatus());
+            Assert.assertEquals("failure - expected status", 201, results.get(2).getStatus());
+            Assert.assertEquals("failure - expected index", 2, results.get(2).getIndex());
+            Assert.assertEquals("failure - expected text attribute match", "test 2", results.get(2).getEntity().getName());
+            Assert.assertEquals("failure - expected size", 6, service.findAll().size());
+        } finally {
+            for (BatchResult<Profile> result : results) {
+                if (result.isSuccess()) {
+                    service.delete(result.getEntity().getId(), null);
+                }
+            }
+        }
+    }
+
     @Test
     public void testUpdate() {
         Long id = 1L;
@@ -105,11 +226,38 @@ public class ProfileServiceTest extends AbstractTest {
 
         String updatedText = entity.getName() + " test";
         entity.setName(updatedText);
-        Profile updatedEntity = service.update(entity);
+        entity.setEmail("updated@example.com");
+        entity.setMobile(null);
+        Profile updatedEntity = service.update(entity, null);
 
         Assert.assertNotNull("failure - expected not null", updatedEntity);
         Assert.assertEquals("failure - expected id attribute match", id, updatedEntity.getId());
         Assert.assertEquals("failure - expected text attribute match", updatedText, updatedEntity.getName());
+        Assert.assertEquals("failure - expected email attribute match", "updated@example.com", updatedEntity.getEmail());
+        Assert.assertNull("failure - expected mobile attribute cleared", updatedEntity.getMobile());
+    }
+
+    @Test
+    public void testUpdateVersionMismatch() {
+        Long id = 1L;
+
+        Profile entity = service.findOne(id);
+        String name = entity.getName();
+        Integer version = entity.getVersion();
+
+        Profile update = new Profile();
+        update.setId(id);
+        update.setName(name + " test");
+
+        Exception exception = null;
+        try {
+            service.update(update, version + 1);
+        } catch (PreconditionFailedException e) {
+            exception = e;
+        }
+
+        Assert.assertNotNull("failure - expected exception", exception);
+        Assert.assertEquals("failure - expected name unchanged", name, service.findOne(id).getName());
     }
 
     @Test
@@ -121,7 +269,7 @@ public class ProfileServiceTest extends AbstractTest {
         entity.setName("test");
 
         try {
-            service.update(entity);
+            service.update(entity, null);
         } catch (NoResultException e) {
             exception = e;
         }
@@ -129,6 +277,77 @@ public class ProfileServiceTest extends AbstractTest {
         Assert.assertNotNull("failure - expected exception", exception);
     }
 
+    @Test
+    public void testPatch() {
+        Long id = 1L;
+
+        Profile entity = service.findOne(id);
+        String name = entity.getName();
+        Integer version = entity.getVersion();
+
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("email", "patched@example.com");
+        Profile updatedEntity = service.patch(id, patch, null);
+
+        Assert.assertEquals("failure - expected email attribute match", "patched@example.com", updatedEntity.getEmail());
+        Assert.assertEquals("failure - expected name attribute unchanged", name, updatedEntity.getName());
+        Assert.assertEquals("failure - expected version incremented", version + 1, updatedEntity.getVersion().intValue());
+    }
+
+    @Test
+    public void testPatchNotPatchable() {
+        Exception exception = null;
+
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("id", 99);
+
+        try {
+            service.patch(1L, patch, null);
+        } catch (PropertyPatchException e) {
+            exception = e;
+        }
+
+        Assert.assertNotNull("failure - expected exception", exception);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testSecondLevelCache() {
+        Ehcache region = ((EhcacheDataRegion) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getSecondLevelCacheRegion("profileEntities")).getEhcache();
+        entityManagerFactory.getCache().evict(Profile.class);
+        long hits = region.getStatistics().getCacheHits();
+
+        Assert.assertNotNull("failure - expected loaded", find(1L));
+        Assert.assertTrue("failure - expected cached", entityManagerFactory.getCache().contains(Profile.class, 1L));
+
+        Profile entity = find(1L);
+
+        Assert.assertNotNull("failure - expected not null", entity);
+        Assert.assertEquals("failure - expected region hit", hits + 1, region.getStatistics().getCacheHits());
+
+        String name = entity.getName();
+        entity.setName(name + " updated");
+        try {
+            service.update(entity, null);
+
+            Assert.assertEquals("failure - expected updated name", name + " updated", find(1L).getName());
+        } finally {
+            Profile updated = find(1L);
+            updated.setName(name);
+            service.update(updated, null);
+        }
+    }
+
+    private Profile find(Long id) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.find(Profile.class, id);
+        } finally {
+            entityManager.close();
+        }
+    }
+
     @Test
     public void testDelete() {
         Long id = 1L;
@@ -137,7 +356,7 @@ public class ProfileServiceTest extends AbstractTest {
 
         Assert.assertNotNull("failure - expected not null", entity);
 
-        service.delete(id);
+        service.delete(id, null);
 
         Collection<Profile> list = service.findAll();
 
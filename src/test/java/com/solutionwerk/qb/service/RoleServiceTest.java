@@ -0,0 +1,55 @@
+package com.solutionwerk.qb.service;
+
+import com.solutionwerk.qb.AbstractTest;
+import com.solutionwerk.qb.model.Role;
+import org.joda.time.DateTime;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collection;
+
+/**
+ * Unit test methods for the RoleService and RoleServiceBean.
+ */
+public class RoleServiceTest extends AbstractTest {
+
+    @Autowired
+    private RoleService service;
+
+    @Test
+    public void testFindAllEffective() {
+        Collection<Role> list = service.findAllEffective(new DateTime());
+
+        Assert.assertNotNull("failure - expected not null", list);
+        Assert.assertEquals("failure - expected list size", 4, list.size());
+
+        Integer previousOrdinal = Integer.MIN_VALUE;
+        for (Role role : list) {
+            Assert.assertTrue("failure - expected ordinal order", role.getOrdinal() >= previousOrdinal);
+            previousOrdinal = role.getOrdinal();
+        }
+    }
+
+    @Test
+    public void testFindAllEffectiveBeforeEffectiveAt() {
+        Collection<Role> list = service.findAllEffective(new DateTime(2014, 1, 1, 0, 0));
+
+        Assert.assertTrue("failure - expected empty list", list.isEmpty());
+    }
+
+    @Test
+    public void testFindByCodeAndEffective() {
+        Role entity = service.findByCodeAndEffective("ROLE_ADMIN", new DateTime());
+
+        Assert.assertNotNull("failure - expected not null", entity);
+        Assert.assertEquals("failure - expected code attribute match", "ROLE_ADMIN", entity.getCode());
+    }
+
+    @Test
+    public void testFindByCodeAndEffectiveNotFound() {
+        Role entity = service.findByCodeAndEffective("ROLE_UNKNOWN", new DateTime());
+
+        Assert.assertNull("failure - expected null", entity);
+    }
+}
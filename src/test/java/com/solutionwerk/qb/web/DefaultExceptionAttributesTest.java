@@ -0,0 +1,58 @@
+package com.solutionwerk.qb.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.persistence.NoResultException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Unit tests for the JSON rendering of the DefaultExceptionAttributes.
+ */
+public class DefaultExceptionAttributesTest {
+
+    private final ExceptionAttributes exceptionAttributes = new DefaultExceptionAttributes();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testJsonMatchesAttributes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/profiles/999");
+        request.setServletPath("/api/profiles/999");
+        NoResultException exception = new NoResultException("Requested \"entity\"\nnot found.");
+
+        Map<String, Object> attributes = exceptionAttributes.getExceptionAttributes(exception, request,
+                HttpStatus.NOT_FOUND);
+        JsonNode json = objectMapper.readTree(exceptionAttributes.getExceptionAttributesJson(exception, request,
+                HttpStatus.NOT_FOUND));
+
+        Iterator<String> names = json.fieldNames();
+        for (String key : attributes.keySet()) {
+            Assert.assertEquals("failure - expected attribute order", key, names.next());
+        }
+        Assert.assertFalse("failure - expected no further attributes", names.hasNext());
+        Assert.assertEquals("failure - expected status", 404, json.get(DefaultExceptionAttributes.STATUS).asInt());
+        Assert.assertEquals("failure - expected error", attributes.get(DefaultExceptionAttributes.ERROR),
+                json.get(DefaultExceptionAttributes.ERROR).asText());
+        Assert.assertEquals("failure - expected exception", attributes.get(DefaultExceptionAttributes.EXCEPTION),
+                json.get(DefaultExceptionAttributes.EXCEPTION).asText());
+        Assert.assertEquals("failure - expected message", exception.getMessage(),
+                json.get(DefaultExceptionAttributes.MESSAGE).asText());
+        Assert.assertEquals("failure - expected path", "/api/profiles/999",
+                json.get(DefaultExceptionAttributes.PATH).asText());
+    }
+
+    @Test
+    public void testJsonNullMessage() throws Exception {
+        JsonNode json = objectMapper.readTree(exceptionAttributes.getExceptionAttributesJson(
+                new IllegalStateException(), new MockHttpServletRequest(), HttpStatus.INTERNAL_SERVER_ERROR));
+
+        Assert.assertTrue("failure - expected null message", json.get(DefaultExceptionAttributes.MESSAGE).isNull());
+        Assert.assertEquals("failure - expected status", 500, json.get(DefaultExceptionAttributes.STATUS).asInt());
+    }
+}